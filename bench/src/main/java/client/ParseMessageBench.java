@@ -0,0 +1,67 @@
+package client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
+import protocol.WireReader;
+
+// client side parsing of one full STATE_UPDATE: from lines already read (parse), and straight from the
+// bytes on the wire, the way the listener thread reads it (decode), up to the histories of a long game
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseMessageBench {
+    @Param({"10", "1000", "10000", "50000"})
+    public int history;
+
+    @Param({"text", "bin1"})
+    public String encoding;
+
+    private List<String> lines;
+    private byte[] wire;
+    private final MessageParser parser = new MessageParser();
+
+    @Setup
+    public void setup() {
+        lines = new ArrayList<>();
+        lines.add("TYPE:STATE_UPDATE");
+        lines.add("VERSION:42");
+        lines.add("FULL:true");
+        lines.add("PREFIX:umb");
+        lines.add("LIVES:4");
+        lines.add("A:p0");
+        lines.add("PLAYERS_START");
+        for (int i = 0; i < 8; i++) lines.add("PLAYER:p" + i + ":READY:true");
+        lines.add("PLAYERS_END");
+        lines.add("HISTORY_START");
+        for (int i = 1; i <= history; i++) lines.add(i + ":p" + (i % 8) + " submitted guess (masked).");
+        lines.add("HISTORY_END");
+        OutMessage msg = OutMessage.of("STATE_UPDATE"); // what the server builds: fields, then whole lines
+        for (String line : lines.subList(1, lines.size())) {
+            int colon = line.indexOf(':');
+            if (line.startsWith("PLAYER") || line.startsWith("HISTORY") || Character.isDigit(line.charAt(0))) msg.line(line);
+            else msg.put(line.substring(0, colon), line.substring(colon + 1));
+        }
+        wire = "bin1".equals(encoding) ? BinaryCodec.encode(msg) : (msg.text() + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ParsedMessage parse() {
+        return MessageParser.parse(lines);
+    }
+
+    @Benchmark
+    public ParsedMessage decode() throws IOException {
+        new WireReader(new ByteArrayInputStream(wire)).next(parser);
+        return parser.finish();
+    }
+}
@@ -0,0 +1,59 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// the bot Defender's guess: rank the words with a prefix against a 3 word hint, on a synthetic index
+// of 100k words with 20 associations each (skewed, so common words have long posting lists like "thing" would)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AssociationIndexBench {
+    @Param({"1", "2", "3"})
+    public int prefixLength;
+
+    private AssociationIndex index;
+    private String[] prefixes, hints;
+    private int i;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        String[] words = new String[100_000];
+        for (int w = 0; w < words.length; w++) {
+            StringBuilder sb = new StringBuilder();
+            for (int n = 4 + rnd.nextInt(6); n > 0; n--) sb.append((char) ('a' + rnd.nextInt(26)));
+            words[w] = sb.toString();
+        }
+        List<String> lines = new ArrayList<>();
+        for (String w : words) {
+            StringBuilder line = new StringBuilder(w).append(':');
+            for (int k = 0; k < 20; k++) line.append(' ').append(words[skewed(rnd, words.length)]);
+            lines.add(line.toString());
+        }
+        index = AssociationIndex.of(lines, null);
+        prefixes = new String[1024];
+        hints = new String[1024];
+        for (int k = 0; k < prefixes.length; k++) {
+            prefixes[k] = words[rnd.nextInt(words.length)].substring(0, prefixLength);
+            hints[k] = words[skewed(rnd, words.length)] + " " + words[skewed(rnd, words.length)] + " " + words[rnd.nextInt(words.length)];
+        }
+    }
+
+    // low ids much more often than high ones
+    private static int skewed(Random rnd, int n) {
+        return (int) (n * Math.pow(rnd.nextDouble(), 3));
+    }
+
+    @Benchmark
+    public String guess() {
+        int k = i++ & 1023;
+        return index.guess(prefixes[k], hints[k]);
+    }
+}
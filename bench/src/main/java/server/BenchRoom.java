@@ -0,0 +1,43 @@
+package server;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// a room full of players whose connections only count bytes, for the JMH benchmarks.
+// Broadcast logging is switched off while it exists (System.out would dominate everything).
+// The benchmark thread calls the room directly: nothing else submits to its executor, so it's the only thread in there.
+final class BenchRoom {
+    // stands in for a client socket: counts what would be written, keeps nothing
+    static final class NullConnection implements Connection {
+        long bytes = 0;
+        @Override public boolean send(Frame frame) { bytes += frame.length(); return true; }
+        @Override public void clearPending() {}
+        @Override public void useBinary() {}
+        @Override public void close() {}
+    }
+
+    final GameServer server;
+    final Room room;
+    final GameState state;
+    final ClientHandler[] handlers;
+    private final PrintStream savedOut = System.out;
+
+    BenchRoom(int players, int history) {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        server = new GameServer(0);
+        server.setHistoryDir(null); // keep history in memory, no spill files
+        room = server.createRoom("bench");
+        state = room.getGameState();
+        handlers = new ClientHandler[players];
+        for (int i = 0; i < players; i++) {
+            handlers[i] = new ClientHandler(new NullConnection(), server);
+            room.registerHandler("p" + i, handlers[i]);
+        }
+        for (int i = 0; i < history; i++) state.addHistory("p" + (i % players) + " submitted guess (masked).");
+        room.broadcastState();
+    }
+
+    void close() {
+        System.setOut(savedOut);
+    }
+}
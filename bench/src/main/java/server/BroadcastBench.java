@@ -0,0 +1,101 @@
+package server;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import protocol.OutMessage;
+
+/**
+ * BroadcastBench
+ * Bytes copied and bytes allocated per broadcast, old path (PrintWriter per recipient)
+ * against the encode-once Frame path, for growing player counts.
+ * Sockets are replaced by a counting sink so only our own user-space work is measured.
+ *
+ * run: mvn -B package && java -cp bench/target/benchmarks.jar server.BroadcastBench
+ */
+public class BroadcastBench {
+    private static final int ROUNDS = 20_000;
+
+    // stands in for a socket stream: counts what reaches it, keeps nothing
+    static final class CountingSink extends OutputStream {
+        long bytes = 0;
+        @Override public void write(int b) { bytes++; }
+        @Override public void write(byte[] b, int off, int len) { bytes += len; }
+    }
+
+    public static void main(String[] args) {
+        OutMessage sample = sampleStateUpdate(60); // a STATE_UPDATE with 60 history lines (~3 KB)
+        String msg = sample.text();
+        System.out.printf("message: %d chars%n", msg.length());
+        System.out.printf("%8s | %14s %14s | %14s %14s%n", "players", "old copied B", "old alloc B", "frame copied B", "frame alloc B");
+        for (int players : new int[] {3, 8, 32, 128, 512}) {
+            long[] old = measureOld(msg, players);
+            long[] frame = measureFrame(sample, players);
+            System.out.printf("%8d | %14d %14d | %14d %14d%n", players, old[0], old[1], frame[0], frame[1]);
+        }
+    }
+
+    // what ClientHandler.send did before: println(raw) + println() + flush on a PrintWriter per client
+    static long[] measureOld(String msg, int players) {
+        CountingSink[] sinks = new CountingSink[players];
+        PrintWriter[] writers = new PrintWriter[players];
+        for (int i = 0; i < players; i++) {
+            sinks[i] = new CountingSink();
+            writers[i] = new PrintWriter(sinks[i], true);
+        }
+        Runnable broadcast = () -> {
+            for (PrintWriter w : writers) {
+                w.println(msg);
+                w.println();
+                w.flush();
+            }
+        };
+        return run(broadcast, sinks, msg.length(), players);
+    }
+
+    // encode once, every client writes the same bytes (BufferedOutputStream, as in SocketConnection)
+    static long[] measureFrame(OutMessage msg, int players) {
+        CountingSink[] sinks = new CountingSink[players];
+        OutputStream[] outs = new OutputStream[players];
+        for (int i = 0; i < players; i++) {
+            sinks[i] = new CountingSink();
+            outs[i] = new BufferedOutputStream(sinks[i], 16 * 1024);
+        }
+        Runnable broadcast = () -> {
+            Frame frame = Frame.of(msg);
+            try {
+                for (OutputStream o : outs) {
+                    frame.writeTo(o);
+                    o.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        return run(broadcast, sinks, msg.text().length(), 1);
+    }
+
+    // {bytes copied per broadcast, bytes allocated per broadcast}
+    // copied = bytes handed to the sinks + the char->byte encodings we paid for
+    private static long[] run(Runnable broadcast, CountingSink[] sinks, int msgLen, int encodings) {
+        for (int i = 0; i < ROUNDS / 4; i++) broadcast.run(); // warm up
+        for (CountingSink s : sinks) s.bytes = 0;
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+        long before = mx.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < ROUNDS; i++) broadcast.run();
+        long alloc = mx.getThreadAllocatedBytes(tid) - before;
+        long written = 0;
+        for (CountingSink s : sinks) written += s.bytes;
+        long copied = written / ROUNDS + (long) encodings * msgLen;
+        return new long[] {copied, alloc / ROUNDS};
+    }
+
+    static OutMessage sampleStateUpdate(int historyLines) {
+        OutMessage m = OutMessage.of("STATE_UPDATE").put("VERSION", 42).put("BASE", 41).put("PREFIX", "con").put("LIVES", 4).put("A", "alice");
+        m.line("PLAYERS_START").line("PLAYER:alice:READY:true").line("PLAYER:bob:READY:true").line("PLAYER:carol:READY:true").line("PLAYERS_END");
+        m.line("HISTORY_START");
+        for (int i = 1; i <= historyLines; i++) m.line(i + ":bob submitted guess (masked).");
+        m.line("HISTORY_END");
+        return m;
+    }
+}
@@ -0,0 +1,46 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Room.broadcastState: one delta (a history line + a readiness change) to every player,
+// and the full snapshot a joining/resyncing player gets
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastStateBench {
+    @Param({"4", "16", "64"})
+    public int players;
+
+    @Param({"0", "100", "1000"})
+    public int history;
+
+    private BenchRoom bench;
+    private boolean ready;
+
+    @Setup
+    public void setup() {
+        bench = new BenchRoom(players, history);
+    }
+
+    @TearDown
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    public void delta() {
+        ready = !ready;
+        bench.state.setReady("p0", ready);
+        bench.state.addHistory("p1 submitted guess (masked).");
+        bench.room.broadcastState();
+    }
+
+    @Benchmark
+    public void snapshot() {
+        bench.room.resync(bench.handlers[0]);
+    }
+}
@@ -0,0 +1,63 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Dictionary lookups on a synthetic 600k word list (random stems with the usual English endings,
+// so suffix sharing is close to a real list): word check, hit and miss, prefix count and enumeration
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryBench {
+    private static final String[] ENDINGS = {"", "s", "ed", "ing", "er", "ers", "ly", "ness"};
+
+    private Dictionary dictionary;
+    private String[] words, misses, prefixes;
+    private int i;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        List<String> list = new ArrayList<>();
+        while (list.size() < 600_000) {
+            StringBuilder stem = new StringBuilder();
+            for (int n = 3 + rnd.nextInt(7); n > 0; n--) stem.append((char) ('a' + rnd.nextInt(26)));
+            for (String e : ENDINGS) list.add(stem + e);
+        }
+        dictionary = Dictionary.of(DictionaryBuilder.build(list));
+        words = new String[1024];
+        misses = new String[1024];
+        prefixes = new String[1024];
+        for (int k = 0; k < words.length; k++) {
+            words[k] = list.get(rnd.nextInt(list.size()));
+            misses[k] = words[k] + "q";
+            prefixes[k] = words[k].substring(0, 3);
+        }
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return dictionary.contains(words[i++ & 1023]);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return dictionary.contains(misses[i++ & 1023]);
+    }
+
+    @Benchmark
+    public int countWithPrefix() {
+        return dictionary.countWithPrefix(prefixes[i++ & 1023]);
+    }
+
+    @Benchmark
+    public List<String> first20WithPrefix() {
+        return dictionary.wordsWithPrefix(prefixes[i++ & 1023], 20);
+    }
+}
@@ -0,0 +1,75 @@
+package server;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
+
+// inbound parsing: Message.readFrom (BufferedReader) against the LineDecoder the transports use, per message
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageReadBench {
+    private static final int MESSAGES = 1000;
+
+    @Param({"JOIN", "START_HINT", "SUBMIT_GUESS"})
+    public String kind;
+
+    private byte[] text, bin1;
+    private final LineDecoder decoder = new LineDecoder();
+
+    @Setup
+    public void setup() throws IOException {
+        OutMessage msg;
+        switch (kind) {
+            case "JOIN": msg = OutMessage.of("JOIN").put("NAME", "player42").put("ROOM", "room-7").put("PROTO", "BIN1"); break;
+            case "START_HINT": msg = OutMessage.of("START_HINT").put("HINT", "something you wear on a rainy day").put("INTENDED", "umbrella"); break;
+            default: msg = OutMessage.of("SUBMIT_GUESS").put("GUESS", "umbrella");
+        }
+        ByteArrayOutputStream t = new ByteArrayOutputStream(), b = new ByteArrayOutputStream();
+        for (int i = 0; i < MESSAGES; i++) {
+            t.write((msg.text() + "\n\n").getBytes(StandardCharsets.UTF_8));
+            b.write(BinaryCodec.encode(msg));
+        }
+        text = t.toByteArray();
+        bin1 = b.toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void readFrom(Blackhole bh) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text), StandardCharsets.UTF_8));
+        Message m;
+        while ((m = Message.readFrom(in)) != null) {
+            bh.consume(m.getType());
+            bh.consume(m.get(MessageField.NAME));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void decodeText(Blackhole bh) throws IOException {
+        decode(ByteBuffer.wrap(text), bh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void decodeBin1(Blackhole bh) throws IOException {
+        decode(ByteBuffer.wrap(bin1), bh);
+    }
+
+    private void decode(ByteBuffer buf, Blackhole bh) throws IOException {
+        Message m;
+        while ((m = decoder.next(buf)) != null) {
+            bh.consume(m.getType());
+            bh.consume(m.get(MessageField.NAME));
+        }
+    }
+}
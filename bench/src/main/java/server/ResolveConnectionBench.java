@@ -0,0 +1,53 @@
+package server;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+// Room.resolveConnection for each outcome, in an 8 player room (A = p0, hint by p1, p2 connects)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveConnectionBench {
+    private static final String SECRET = "umbrellas";
+
+    @Param({"FAILED", "LIFE_LOST", "SUCCESS"})
+    public String outcome;
+
+    private BenchRoom bench;
+    private String aGuess, b2Guess;
+
+    @Setup
+    public void setup() {
+        bench = new BenchRoom(8, 0);
+        GameState s = bench.state;
+        s.setSecret(SECRET);
+        s.setActivePlayer("p0");
+        s.revealInitialPrefix();
+        s.resetLives();
+        aGuess = "LIFE_LOST".equals(outcome) ? "umpire" : "ulcer";
+        b2Guess = "SUCCESS".equals(outcome) ? "umpire" : "udon";
+    }
+
+    @TearDown
+    public void tearDown() {
+        bench.close();
+    }
+
+    @Benchmark
+    public void resolveConnection() {
+        GameState s = bench.state;
+        // same state the CONNECT + both SUBMIT_GUESS messages leave behind
+        s.setPendingHint("p1", "a referee", "umpire");
+        s.setConnectionRequester("p2");
+        s.putGuess("p0", aGuess);
+        s.putGuess("p2", b2Guess);
+        bench.room.resolveConnection();
+        // undo what the outcome changed so every call resolves the same way
+        s.resetLives();
+        s.revealInitialPrefix();
+        s.setGameOver(false);
+    }
+}
@@ -23,11 +23,11 @@ REM Compile core sources if not already
 if not exist out (
   echo [INFO] Creating out directory and compiling core classes...
   mkdir out
-  javac -d out src\server\*.java
+  javac -d out src\protocol\*.java src\server\*.java
 )
 
 echo [INFO] Compiling JavaFX classes...
-javac --module-path "%JAVA_FX_LIB%" --add-modules javafx.controls,javafx.fxml -d out src\client\ParsedMessage.java src\client\ClientController.java src\client\GuiClient.java
+javac --module-path "%JAVA_FX_LIB%" --add-modules javafx.controls,javafx.fxml -cp out -d out src\client\ParsedMessage.java src\client\ClientController.java src\client\GuiClient.java
 if errorlevel 1 (
   echo [ERROR] JavaFX compilation failed.
   exit /b 1
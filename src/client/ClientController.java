@@ -1,18 +1,21 @@
 package client;
 
 import javafx.application.Platform;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
-import javafx.util.Duration;
+import javafx.animation.AnimationTimer;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
+import protocol.WireReader;
 
 import java.net.Socket;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.Map;
 
 public class ClientController {
@@ -82,12 +85,26 @@ public class ClientController {
     private Button guessBtnB;
 
     @FXML
-    private TextArea historyArea;
+    private ListView<String> historyList; // virtualized: only the visible entries have cells
+    @FXML
+    private Button olderHistoryBtn;
 
     // Initially disable some elements and set value of others
     @FXML
     private void initialize() {
-        historyArea.setText("");
+        historyList.setCellFactory(list -> new ListCell<>() {
+            {
+                setWrapText(true);
+                prefWidthProperty().bind(list.widthProperty().subtract(20)); // wrap at the list's width, no side scrolling
+                setMaxWidth(Control.USE_PREF_SIZE);
+            }
+
+            @Override
+            protected void updateItem(String entry, boolean empty) {
+                super.updateItem(entry, empty);
+                setText(empty ? null : entry);
+            }
+        });
         playerListArea.setText("Waiting for connection...");
         connectBtn.setDisable(false);
         joinBtn.setDisable(true);
@@ -100,17 +117,49 @@ public class ClientController {
     }
 
     private Socket socket;
-    private BufferedReader in;
-    private PrintWriter out;
+    private WireReader in;
+    private OutputStream out;
+    private volatile boolean binaryProtocol = false; // server confirmed BIN1, we send binary frames
     private Thread listenerThread;
     private Thread reconnectionThread;
     private volatile boolean isRunning = false; 
     private volatile boolean disconnected = false; 
     private volatile boolean joined = false;
+    private volatile String resumeToken = null; // from JOINED, lets a reconnect take the same seat back
+    private volatile int reconnectAttempts = 0; // failed attempts in a row, sets the backoff
+    private volatile long retryAfterMs = 0; // server was busy (RETRY_AFTER): wait at least this long
     private String prevHost = "";
     private int prevPort = 0;
     private String myRole = null;
-    private Map<String, Boolean> playerReadiness = new HashMap<>();
+    private Map<String, Boolean> playerReadiness = new HashMap<>(); // listener thread's copy
+
+    // clock offset and round trip to the server, so countdowns end when the server's timers do
+    private final ClockSync clock = new ClockSync();
+    private static final long CLOCK_PING_MS = 5_000; // one timed PING every 5 s while connected
+    private static final long CLOCK_WARMUP_MS = 500; // faster for the first few, a countdown may start right away
+
+    // UI side: updates wait in `pending` until the next pulse, the rest is only touched by the FX thread.
+    // The timer runs only while there is something to do: `pending` starts it, onPulse stops it once idle
+    private final AnimationTimer pulse = new AnimationTimer() { // once per pulse: whatever arrived since the last one, and the countdown
+        @Override
+        public void handle(long now) {
+            onPulse(now);
+        }
+    };
+    private final PendingView pending = new PendingView(() -> Platform.runLater(pulse::start));
+    private Map<String, Boolean> shownPlayers = Map.of();
+    private String shownPrefix = "", shownA = "";
+    private long countdownDeadline = 0; // System.nanoTime() the shown countdown ends at, 0: none
+    private long countdownShown = -1; // seconds on timerLabel
+
+    // game state as built from STATE_UPDATE deltas
+    private int stateVersion = -1; // -1 until the first full snapshot
+    private boolean resyncPending = false; // RESYNC sent, its snapshot not here yet (listener thread)
+    private String currPrefix = "";
+    private String currLives = "";
+    private String currA = "";
+    private long lastHistorySeq = 0; // last history entry received
+    private long firstHistorySeq = 0; // first one shown (older ones can be paged in from the server)
 
     // To restore buttons to default 
     private void resetConnectionButtons() {
@@ -146,14 +195,19 @@ public class ClientController {
         }
     }
 
-    // Send a message to server using PrintWriter
-    private void send(String s) {
+    // Send a message to server (text, or a BIN1 frame once the server agreed to it)
+    private synchronized void send(OutMessage m) {
         if (out == null) {
             return;
         }
-        out.println(s);
-        out.println();
-        out.flush();
+        try {
+            if (binaryProtocol) {
+                out.write(BinaryCodec.encode(m));
+            } else {
+                out.write((m.text() + "\n\n").getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        } catch (IOException e) {} // the listener notices the broken socket
     }
 
     // To display players in the lobby
@@ -161,8 +215,8 @@ public class ClientController {
         String playerList = "";
         String ownName = nameField.getText().trim();
 
-        for (String name : playerReadiness.keySet()) {
-            boolean isReady = playerReadiness.get(name);
+        for (String name : shownPlayers.keySet()) {
+            boolean isReady = shownPlayers.get(name);
             String playerString = "";
 
             if (name.equals(ownName)) { // whether its you or another player
@@ -183,73 +237,94 @@ public class ClientController {
         playerListArea.setText(playerList);
     }
 
-    // Function to run in timeline
-    private void keyframeFunc() {
-        countdownRemainingSeconds -= 1;
-        final int temp = countdownRemainingSeconds;
+    // Runs on every pulse while the timer is on (FX thread): applies what arrived since the last pulse
+    // in one go, then moves the countdown on. With no countdown left it stops the timer; the next
+    // update starts it again (it is queued after this pulse, so it can't be lost to the stop)
+    private void onPulse(long now) {
+        PendingView update = pending.take();
+        if (update != null) {
+            apply(update);
+        }
+        if (countdownDeadline == 0 || timerLabel == null) {
+            pulse.stop();
+            return;
+        }
+        long left = countdownDeadline - now;
+        long seconds = Math.max(0, (left + 999_999_999) / 1_000_000_000); // rounded up: "60s" until a whole second has passed
+        if (seconds != countdownShown) {
+            countdownShown = seconds;
+            timerLabel.setText(String.format("%ds", seconds));
+        }
+        if (left <= 0) {
+            stopCountdown();
+        }
+    }
 
-        Platform.runLater(() -> {
-            if (timerLabel != null) {
-                timerLabel.setText(String.format("%ds", Math.max(0, temp)));
-            }
-        });
+    // Everything merged since the last pulse, once
+    private void apply(PendingView update) {
+        if (update.prefix != null) {
+            shownPrefix = update.prefix;
+            prefixLabel.setText(shownPrefix.isEmpty() ? "-" : shownPrefix);
+        }
 
-        if (countdownRemainingSeconds > 0) {
-            return;
+        if (update.lives != null) {
+            livesLabel.setText(update.lives.isEmpty() ? "-" : update.lives);
         }
 
-        stopCountdown();
-    }
+        if (update.a != null) {
+            shownA = update.a;
+            aLabel.setText(shownA.isEmpty() ? "-" : shownA);
+        }
 
-    // Make timeline
-    private void makeTimeline() {
-        countdownTimeline = new Timeline(new KeyFrame(Duration.seconds(1), ev -> {
-            keyframeFunc();
-        }));
+        if (update.players != null) {
+            shownPlayers = update.players;
+            updatePlayerList();
+        }
 
-        countdownTimeline.setCycleCount(Timeline.INDEFINITE);
-        countdownTimeline.play();
-    }
+        ObservableList<String> entries = historyList.getItems();
+        if (update.replaceHistory) { // snapshot: whole log once
+            entries.setAll(update.history);
+        } else {
+            entries.addAll(0, update.older);
+            entries.addAll(update.history); // delta: only the new entries
+        }
+        if (update.replaceHistory || !update.history.isEmpty()) {
+            historyList.scrollTo(entries.size() - 1);
+        }
 
-    // Countdown timer management
-    private Timeline countdownTimeline = null;
-    private int countdownRemainingSeconds = 0;
+        if (update.hasOlder != null) {
+            olderHistoryBtn.setDisable(!update.hasOlder);
+        }
 
-    private void startCountdown(int seconds) {
-        stopCountdown();
-        countdownRemainingSeconds = seconds;
+        if (update.prefix != null || update.a != null || update.players != null) {
+            updateUIState(shownA, shownPrefix);
+        }
 
-        Platform.runLater(() -> {
+        if (update.guessOpen != null) { // by then updateUIState knows our role
+            guessBtnB.setDisable(!(update.guessOpen && "B".equals(myRole)));
+            guessBtn.setDisable(!(update.guessOpen && "A".equals(myRole)));
+        }
+
+        if (update.countdownDeadline > 0) {
+            countdownDeadline = update.countdownDeadline;
+            countdownShown = -1;
             if (timerLabel != null) {
                 timerLabel.setVisible(true);
-                timerLabel.setText(String.format("%ds", countdownRemainingSeconds));
             }
-        });
-
-        makeTimeline();
-    }
-
-    private void stopTimerGUIUpdate() {
-        if (timerLabel == null) {
-                return;
+        } else if (update.countdownDeadline == 0) {
+            stopCountdown();
         }
-        
-        timerLabel.setText("");
-        timerLabel.setVisible(false);
     }
 
     // Stop count down of timer
     private void stopCountdown() {
-        if (countdownTimeline == null) {
+        countdownDeadline = 0;
+        if (timerLabel == null) {
             return;
         }
 
-        countdownTimeline.stop();
-        countdownTimeline = null;
-
-        Platform.runLater(() -> {
-            stopTimerGUIUpdate();
-        });
+        timerLabel.setText("");
+        timerLabel.setVisible(false);
     }
 
     // To update GUI when you reconnect to game
@@ -262,11 +337,25 @@ public class ClientController {
         });
     }
 
+    private static final long RECONNECT_BASE_MS = 500;
+    private static final long RECONNECT_CAP_MS = 30_000;
+
+    // Exponential backoff with full jitter: a random wait up to base * 2^attempts (capped), so
+    // every client of a restarted server doesn't come back at the same moment
+    private long reconnectDelay() {
+        long ceiling = Math.min(RECONNECT_CAP_MS, RECONNECT_BASE_MS << Math.min(reconnectAttempts, 16));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        reconnectAttempts++;
+        long busy = retryAfterMs; // the server's own hint wins if it's longer
+        retryAfterMs = 0;
+        return Math.max(delay, busy);
+    }
+
     // Function to run in reconnection thread
     private void reconnectionThreadFunc() {
         while (!disconnected) {
             try {
-                Thread.sleep(3000); // don't run constantly
+                Thread.sleep(reconnectDelay()); // don't run constantly
 
                 // create new socket and replace old input/output streams with new ones
                 Socket s = new Socket(prevHost, prevPort);
@@ -274,23 +363,19 @@ public class ClientController {
 
                 InputStream inputStream = s.getInputStream();
                 OutputStream outputStream = s.getOutputStream();
-                InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-
-                BufferedReader bufferedIn = new BufferedReader(inputStreamReader);
-                in = bufferedIn;
 
-                PrintWriter bufferedOut = new PrintWriter(outputStream, true);
-                out = bufferedOut;
+                in = new WireReader(inputStream);
+                out = new BufferedOutputStream(outputStream);
+                binaryProtocol = false; // negotiated again with the JOIN
             
                 isRunning = true;
                 reconnectionGUIUpdate();
                 
-                // Rejoin the game
-                if (joined) {
-                    String name = nameField.getText().trim();
-                    if (!name.isEmpty()) {
-                        send("TYPE:JOIN\nNAME:" + name);
-                    }
+                // Take the seat back (only the missed history is sent), or rejoin the game
+                if (joined && resumeToken != null) {
+                    send(OutMessage.of("RESUME").put("TOKEN", resumeToken).put("SEQ", lastHistorySeq).put("PROTO", BinaryCodec.NAME));
+                } else if (joined) {
+                    rejoin();
                 }
 
                 startListener();
@@ -302,6 +387,14 @@ public class ClientController {
         }
     }
 
+    private void rejoin() {
+        String name = nameField.getText().trim();
+        if (!name.isEmpty()) {
+            stateVersion = -1; // the server sends a full snapshot after JOIN
+            send(OutMessage.of("JOIN").put("NAME", name).put("PROTO", BinaryCodec.NAME));
+        }
+    }
+
     // Function to run the reconnection thread
     private void attemptReconnectLoop() {
         synchronized (this) {
@@ -315,189 +408,167 @@ public class ClientController {
         }
     }
 
-    // Process messages received from server
-    private void processMessage(List<String> messages) {
-        ParsedMessage parsedMessage = parseMessage(messages); // Convert raw strings to an object
+    // Process messages received from server (already parsed while they were read)
+    private void processMessage(ParsedMessage parsedMessage) {
         String messageType = parsedMessage.type;
 
         // Call appropriate handler
-        if ("STATE_UPDATE".equals(messageType)) {
+        if ("PROTO".equals(messageType)) { // server switches to binary frames after this one
+            binaryProtocol = BinaryCodec.NAME.equals(parsedMessage.proto);
+        }
+
+        else if ("JOINED".equals(messageType)) {
+            resumeToken = parsedMessage.token;
+            reconnectAttempts = 0;
+        }
+
+        else if ("PING".equals(messageType)) { // server heartbeat: answer, or it takes us for a dead connection
+            send(OutMessage.of("PONG"));
+        }
+
+        else if ("PONG".equals(messageType)) { // answer to our timed PING
+            clock.sample(parsedMessage.sent, parsedMessage.serverTime, System.currentTimeMillis());
+        }
+
+        else if ("RESUMED".equals(messageType)) {
+            reconnectAttempts = 0;
+        }
+
+        else if ("RETRY_AFTER".equals(messageType)) { // server is busy, it closes the connection; try again later
+            retryAfterMs = Math.max(0, parsedMessage.ms);
+            Platform.runLater(() -> statusLabel.setText("Server busy, retrying..."));
+        }
+
+        else if ("RESUME_FAILED".equals(messageType)) { // seat is gone (grace period over, server restarted)
+            resumeToken = null;
+            rejoin();
+        }
+
+        else if ("STATE_UPDATE".equals(messageType)) {
             handleStateUpdate(parsedMessage);
 
         } 
         
         else if ("CONNECTION_WINDOW".equals(messageType)) {
-            handleConnectionWindow(messages);
+            handleConnectionWindow(parsedMessage);
 
         } 
         
         else if ("HINT_STARTED".equals(messageType)) {
-            handleHintStarted(messages);
+            handleHintStarted(parsedMessage);
 
         } 
         
+        else if ("HISTORY_PAGE".equals(messageType)) {
+            handleHistoryPage(parsedMessage);
+
+        }
+
         else if ("CONNECTION_SUCCESS".equals(messageType) || "CONNECTION_FAILED".equals(messageType) || "HINT_TIMEOUT".equals(messageType)) {
-            handleConnectionEnd(messages);
+            handleConnectionEnd();
 
         } 
     }
 
-    // Convert raw strings to objects
-    private ParsedMessage parseMessage(List<String> messages) {
-        String messageType = null, prefix = null, lives = null, a = null;
-        boolean readingPlayersSection = false, readingHistorySection = false;
-        String historyString = "";
-        Map<String, Boolean> tempReadiness = new HashMap<>();
-
-        for (String message : messages) {
-            // History Section
-            if (message.equals("HISTORY_START")) { 
-                readingHistorySection = true; 
-                continue; 
-            }
-            
-            if (message.equals("HISTORY_END")) { 
-                readingHistorySection = false; 
-                continue; 
-            }
-
-            // Players Section
-            if (message.equals("PLAYERS_START")) { 
-                readingPlayersSection = true; 
-                continue; 
-            }
-            
-            if (message.equals("PLAYERS_END")) { 
-                readingPlayersSection = false; 
-                continue; 
-            }
-
-            // If reading players section, get the name of the players and mark them as ready/not ready
-            if (readingPlayersSection) {
-                if (message.startsWith("PLAYER:")) {
-                    String[] playerStrParts = message.split(":", 4);
-                    if (playerStrParts.length >= 4) { 
-                        Boolean readiness = "true".equalsIgnoreCase(playerStrParts[3]);
-                        tempReadiness.put(playerStrParts[1], readiness); 
-                    }
-                }
-                
-                continue;
-            }
-
-            // If reading history, add whole message to the history string
-            if (readingHistorySection) {
-                historyString += message;
-                historyString += '\n';
-                continue;
-            }
-
-            // Construct the actual object
-            int idx = message.indexOf(':');
-            if (idx > 0) {
-                String key = message.substring(0, idx).trim();
-                String value = message.substring(idx + 1).trim();
-
-                if ("TYPE".equals(key)) {
-                    messageType = value;
-                }
-
-                else if ("PREFIX".equals(key)) { 
-                    prefix = value;
-                }
+    // Handler for update of game (full snapshot or delta on top of the version we have)
+    private void handleStateUpdate(ParsedMessage parsedMessage) {
 
-                else if ("LIVES".equals(key)) {
-                    lives = value;
-                }
+        if (parsedMessage.full) { // start over from the snapshot
+            resyncPending = false;
+            playerReadiness.clear();
+            currPrefix = "";
+            currLives = "";
+            currA = "";
+        }
 
-                else if ("A".equals(key)) {
-                    a = value;
-                }
+        else if (parsedMessage.catchUp) { // after RESUME: everything but the history we already have
+            if (parsedMessage.historyFirstSeq != 0 && parsedMessage.historyFirstSeq != lastHistorySeq + 1) {
+                resync();
+                return;
             }
+            resyncPending = false;
+            playerReadiness.clear();
         }
 
-        return new ParsedMessage(messageType, prefix, lives, a, historyString, tempReadiness);
-    }
+        else if (stateVersion < 0 || parsedMessage.base != stateVersion
+                || (parsedMessage.historyFirstSeq != 0 && parsedMessage.historyFirstSeq != lastHistorySeq + 1)) { // missed something, ask for everything
+            resync();
+            return;
+        }
 
-    // Handler for update of game
-    private void handleStateUpdate(ParsedMessage parsedMessage) {
+        stateVersion = parsedMessage.version;
 
-        // Replacing old player ready map with new one
-        playerReadiness.clear();
+        // Apply only what was sent
+        if (parsedMessage.prefix != null) currPrefix = parsedMessage.prefix;
+        if (parsedMessage.lives != null) currLives = parsedMessage.lives;
+        if (parsedMessage.a != null) currA = parsedMessage.a;
         playerReadiness.putAll(parsedMessage.playerReadiness);
+        for (String name : parsedMessage.removedPlayers) {
+            playerReadiness.remove(name);
+        }
+        if (parsedMessage.historyLastSeq != 0) lastHistorySeq = parsedMessage.historyLastSeq;
+        else if (parsedMessage.full) lastHistorySeq = 0;
+        if (parsedMessage.full || firstHistorySeq == 0) firstHistorySeq = parsedMessage.historyFirstSeq;
+        final boolean hasOlder = firstHistorySeq > 1;
 
-        Platform.runLater(() -> {
-            if (parsedMessage.prefix == null || parsedMessage.prefix.isEmpty()) { // No prefix
-                prefixLabel.setText( "-" );
-            }
-
-            else {
-                prefixLabel.setText(parsedMessage.prefix);
-            }
-
-            if (parsedMessage.lives == null || parsedMessage.lives.isEmpty()) { // No lives
-                livesLabel.setText("-");
-            } else {
-                livesLabel.setText(parsedMessage.lives);
-            }
+        boolean playersChanged = parsedMessage.full || parsedMessage.catchUp
+                || !parsedMessage.playerReadiness.isEmpty() || !parsedMessage.removedPlayers.isEmpty();
+        pending.state(parsedMessage.prefix == null ? null : currPrefix, parsedMessage.lives == null ? null : currLives,
+                parsedMessage.a == null ? null : currA, playersChanged ? new LinkedHashMap<>(playerReadiness) : null,
+                parsedMessage.history, parsedMessage.full, hasOlder);
+    }
 
-            if (parsedMessage.a == null || parsedMessage.a.isEmpty()) { // No value
-                aLabel.setText("-");
-            } else {
-                aLabel.setText(parsedMessage.a);
-            }
+    // Ask for a full snapshot, once: the deltas that keep coming until it arrives are all stale anyway
+    private void resync() {
+        if (resyncPending) {
+            return;
+        }
+        resyncPending = true;
+        send(OutMessage.of("RESYNC"));
+    }
 
-            historyArea.setText(parsedMessage.history.trim());
-            historyArea.positionCaret(historyArea.getLength());
+    // Older history entries the server sent on request: put them in front
+    private void handleHistoryPage(ParsedMessage parsedMessage) {
+        if (parsedMessage.historyFirstSeq == 0 || parsedMessage.historyLastSeq != firstHistorySeq - 1) {
+            return; // empty, or not the page right before what we show
+        }
 
-            updatePlayerList();
-            updateUIState(parsedMessage.a, parsedMessage.prefix);
-        });
+        firstHistorySeq = parsedMessage.historyFirstSeq;
+        pending.olderPage(parsedMessage.history, firstHistorySeq > 1);
     }
 
     // Handle the start of a connection (for hint)
-    private void handleConnectionWindow(List<String> messages) {
-        handleHintStarted(messages);
-
-        Platform.runLater(() -> {
-            if ("B".equals(myRole)) {
-                guessBtnB.setDisable(false);
-            }
-            else if ("A".equals(myRole)) {
-                guessBtn.setDisable(false);
-            }
-        });
+    private void handleConnectionWindow(ParsedMessage parsedMessage) {
+        handleHintStarted(parsedMessage);
+        pending.guessOpen(true);
     }
 
     // Handle the end of a connection (for a hint)
-    private void handleConnectionEnd(List<String> messages) {
-        stopCountdown();
-        Platform.runLater(() -> {
-            guessBtn.setDisable(true);
-            guessBtnB.setDisable(true);
-        });
+    private void handleConnectionEnd() {
+        pending.countdown(0);
+        pending.guessOpen(false);
     }
 
     // Update timer to handle hint start
-    private void handleHintStarted(List<String> messages) {
-        int timeSeconds = -1;
-
-        // Extract time
-        for (String message : messages) {
-            if (message.startsWith("TIME:")) {
-                try {
-                    String messageTime = message.substring(5).trim();
-                    timeSeconds = Integer.parseInt(messageTime);
-                } catch (NumberFormatException e) {
-                    timeSeconds = -1;
-                }
-            }
+    private void handleHintStarted(ParsedMessage parsedMessage) {
+        int timeSeconds = parsedMessage.time;
+        if (timeSeconds <= 0) {
+            return;
         }
 
-        // Set time
-        if (timeSeconds > 0) {
-            startCountdown(timeSeconds);
+        // Time left by the server's clock: its DEADLINE, less how far ahead its clock is. Without a DEADLINE
+        // (older server) or a clock sample yet, TIME less the half round trip the message took to get here
+        long window = timeSeconds * 1000L;
+        long left;
+        if (parsedMessage.deadline > 0 && clock.samples() > 0) {
+            left = clock.remaining(parsedMessage.deadline, System.currentTimeMillis());
+        } else {
+            left = window - clock.rtt() / 2;
         }
+        left = Math.max(0, Math.min(window, left)); // a bad estimate never shows more than the whole window
+
+        // Set time
+        pending.countdown(System.nanoTime() + left * 1_000_000L);
     }
 
     // Update UI if roles have been given
@@ -543,13 +614,13 @@ public class ClientController {
         
         // Enable ready button if joined
         boolean joined = false;
-        if (!ownName.isEmpty() && playerReadiness.containsKey(ownName)) {
+        if (!ownName.isEmpty() && shownPlayers.containsKey(ownName)) {
             joined = true;
         }
 
         // Disable ready button
         boolean disableReadyButton = false;
-        if (!joined || playerReadiness.getOrDefault(ownName, false)) {
+        if (!joined || shownPlayers.getOrDefault(ownName, false)) {
             disableReadyButton = true;
         }
 
@@ -558,7 +629,7 @@ public class ClientController {
         // Set status text
         if (joined) {
             boolean amReady = false;
-            if (playerReadiness.getOrDefault(ownName, false)) {
+            if (shownPlayers.getOrDefault(ownName, false)) {
                 amReady = true;
             }
 
@@ -618,21 +689,10 @@ public class ClientController {
     // Function to run in listener thread
     private void listenerThreadFunc() {
         try {
-            String ln = in.readLine();
-            List<String> list = new ArrayList<>();
-
-            while (isRunning && ln != null) {
-
-                if (!ln.trim().isEmpty()) { // non-empty message
-                    list.add(ln);
-                } else { // all messages have been added to list
-                    if (!list.isEmpty()) { // non-empty list
-                        processMessage(list);
-                        list.clear();
-                    }
-                }
+            MessageParser parser = new MessageParser(); // parses each line as the reader decodes it (text or binary frame)
 
-                ln = in.readLine();
+            while (isRunning && in.next(parser)) {
+                processMessage(parser.finish());
             }
         } catch (IOException e) {}
 
@@ -645,9 +705,26 @@ public class ClientController {
 
     // Starts thread to listen from server
     private void startListener() {
+        resyncPending = false; // one sent on the old connection died with it
         listenerThread = new Thread(this::listenerThreadFunc, "listener");
         listenerThread.setDaemon(true);
         listenerThread.start();
+
+        clock.reset(); // another connection, measured again
+        Socket s = socket;
+        Thread clockThread = new Thread(() -> clockThreadFunc(s), "clock");
+        clockThread.setDaemon(true);
+        clockThread.start();
+    }
+
+    // Function to run in clock thread: timed PINGs for as long as this socket is the one in use
+    private void clockThreadFunc(Socket s) {
+        try {
+            while (isRunning && socket == s && !s.isClosed()) {
+                send(OutMessage.of("PING").put("SENT", System.currentTimeMillis()));
+                Thread.sleep(clock.samples() < ClockSync.WINDOW / 2 ? CLOCK_WARMUP_MS : CLOCK_PING_MS);
+            }
+        } catch (InterruptedException e) {}
     }
 
     // Handle pressing connection button
@@ -673,12 +750,13 @@ public class ClientController {
 
             InputStream socket_input = socket.getInputStream();
             OutputStream socket_output = socket.getOutputStream();
-            InputStreamReader instream = new InputStreamReader(socket_input);
 
-            in = new BufferedReader(instream);
-            out = new PrintWriter(socket_output, true);
+            in = new WireReader(socket_input);
+            out = new BufferedOutputStream(socket_output);
+            binaryProtocol = false;
 
             isRunning = true;
+            stateVersion = -1;
 
             onConnect_GUIUpdate();
             startListener(); // start new thread to listen from server
@@ -691,11 +769,13 @@ public class ClientController {
     // Handle pressing disconnect button
     @FXML
     private void onDisconnect() {
+        if (joined) send(OutMessage.of("LEAVE_ROOM")); // leaving on purpose: free the seat now, not after the resume grace period
         closeSocket();
 
         // Reset booleans
         disconnected = true;
         joined = false;
+        resumeToken = null;
         isRunning = false;
 
         // Show status
@@ -720,7 +800,13 @@ public class ClientController {
         prefixLabel.setText("");
         livesLabel.setText("");
         aLabel.setText("");
-        historyArea.clear();
+        pending.clear(); // nothing that arrived before this may show up after it
+        shownPlayers = Map.of();
+        shownPrefix = "";
+        shownA = "";
+        stopCountdown();
+        historyList.getItems().clear();
+        olderHistoryBtn.setDisable(true);
 
         roleBPanel.setVisible(false);
         roleBPanel.setManaged(false);
@@ -744,7 +830,7 @@ public class ClientController {
 
         if (!name.isEmpty()) {
             joinBtn.setDisable(true);
-            send("TYPE:JOIN\nNAME:" + name);
+            send(OutMessage.of("JOIN").put("NAME", name).put("PROTO", BinaryCodec.NAME));
             joined = true;
         }
     }
@@ -760,7 +846,7 @@ public class ClientController {
             return;
         }
 
-        send("TYPE:READY");
+        send(OutMessage.of("READY"));
     }
 
     // Handle pressing set secret button
@@ -769,7 +855,7 @@ public class ClientController {
         String sec = secretField.getText().trim();
 
         if (!sec.isEmpty()) {
-            send("TYPE:SET_SECRET\nSECRET:" + sec);
+            send(OutMessage.of("SET_SECRET").put("SECRET", sec));
         }
     }
 
@@ -800,7 +886,7 @@ public class ClientController {
             return;
         }
         
-        send("TYPE:SUBMIT_GUESS\nGUESS:" + guess);
+        send(OutMessage.of("SUBMIT_GUESS").put("GUESS", guess));
     }
 
 
@@ -814,13 +900,21 @@ public class ClientController {
             return;
         }
 
-        send("TYPE:START_HINT\nHINT:" + hint + "\nINTENDED:" + intended);
+        send(OutMessage.of("START_HINT").put("HINT", hint).put("INTENDED", intended));
+    }
+
+    // Handle pressing load older history button
+    @FXML
+    private void onOlderHistory() {
+        if (firstHistorySeq > 1) {
+            send(OutMessage.of("HISTORY_PAGE").put("BEFORE", firstHistorySeq).put("LIMIT", 100));
+        }
     }
 
     // Handle pressing connect button (for hint)
     @FXML
     private void onConnectAttempt() {
-        send("TYPE:CONNECT");
+        send(OutMessage.of("CONNECT"));
     }
 
     // Handle pressing quit button
@@ -0,0 +1,54 @@
+package client;
+
+// how far the server's clock is from ours, and the round trip to it, from timed PING/PONGs (no JavaFX here).
+// We PING with SENT (our clock), the server answers with SENT and SERVER_TIME (its clock). It read its clock
+// somewhere between our send and our receive; taking the middle, offset = SERVER_TIME - (sent + received) / 2,
+// wrong by at most rtt / 2. A sample that waited in a queue has a long round trip and a lopsided one, so of the
+// last few samples we trust the one with the shortest round trip (NTP's clock filter, in small).
+final class ClockSync {
+    static final int WINDOW = 8; // samples kept; at one PING every few seconds, a clock step ages out within a minute
+
+    private final long[] rtts = new long[WINDOW];
+    private final long[] offsets = new long[WINDOW];
+    private int count, next;
+
+    // one PONG: our clock when the PING left (its SENT), the server's clock, our clock now
+    synchronized void sample(long sent, long serverTime, long received) {
+        long rtt = received - sent;
+        if (sent <= 0 || serverTime <= 0 || rtt < 0) return; // not a timed PONG, or our clock was set back in between
+        rtts[next] = rtt;
+        offsets[next] = serverTime - (sent + rtt / 2);
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) count++;
+    }
+
+    synchronized int samples() { return count; }
+
+    // server clock minus ours in ms, 0 until the first sample
+    synchronized long offset() {
+        return count == 0 ? 0 : offsets[best()];
+    }
+
+    // round trip in ms (the shortest one kept), 0 until the first sample
+    synchronized long rtt() {
+        return count == 0 ? 0 : rtts[best()];
+    }
+
+    // ms from `now` (our clock) to a deadline on the server's clock, negative once it's past
+    synchronized long remaining(long deadline, long now) {
+        return deadline - (now + offset());
+    }
+
+    // new connection: another path, maybe another server
+    synchronized void reset() {
+        count = next = 0;
+    }
+
+    private int best() {
+        int b = 0;
+        for (int i = 1; i < count; i++) {
+            if (rtts[i] < rtts[b]) b = i;
+        }
+        return b;
+    }
+}
@@ -0,0 +1,149 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import protocol.FieldSink;
+
+// turns server messages into ParsedMessages (no JavaFX here, so it can be benchmarked).
+// It parses as it goes: WireReader hands it each line (text) or field (BIN1) as soon as it's decoded, and finish()
+// returns the message and gets the parser ready for the next one. One parser per connection.
+// Linear in the size of the message: history entries go straight into a list, nothing is rebuilt per line
+final class MessageParser implements FieldSink {
+    private String messageType, prefix, lives, a, token, proto;
+    private boolean readingPlayersSection, readingHistorySection;
+    private List<String> history = new ArrayList<>();
+    private long historyFirstSeq, historyLastSeq;
+    private Map<String, Boolean> readiness = new HashMap<>();
+    private List<String> removed = new ArrayList<>();
+    private int version = -1, base = -1, time = -1;
+    private long ms = 0, deadline = 0, sent = 0, serverTime = 0;
+    private boolean full, catchUp;
+
+    // a whole message at once (tests, benchmarks)
+    static ParsedMessage parse(List<String> messages) {
+        MessageParser parser = new MessageParser();
+        messages.forEach(parser::line);
+        return parser.finish();
+    }
+
+    // one line of the current message
+    @Override
+    public void line(String message) {
+        // History Section
+        if (message.equals("HISTORY_START")) {
+            readingHistorySection = true;
+            return;
+        }
+
+        if (message.equals("HISTORY_END")) {
+            readingHistorySection = false;
+            return;
+        }
+
+        // Players Section
+        if (message.equals("PLAYERS_START")) {
+            readingPlayersSection = true;
+            return;
+        }
+
+        if (message.equals("PLAYERS_END")) {
+            readingPlayersSection = false;
+            return;
+        }
+
+        // If reading players section, get the name of the players (PLAYER:name:READY:true) and mark them as ready/not ready
+        if (readingPlayersSection) {
+            if (message.startsWith("PLAYER:")) {
+                int nameEnd = message.indexOf(':', 7);
+                int valueStart = nameEnd < 0 ? -1 : message.indexOf(':', nameEnd + 1) + 1;
+                if (valueStart > 0) {
+                    boolean ready = message.length() - valueStart == 4 && message.regionMatches(true, valueStart, "true", 0, 4);
+                    readiness.put(message.substring(7, nameEnd), ready);
+                }
+            }
+
+            else if (message.startsWith("REMOVED:")) { // player left since last version
+                removed.add(message.substring(8));
+            }
+
+            return;
+        }
+
+        // If reading history, add the entry (after its SEQ: prefix) to the list
+        if (readingHistorySection) {
+            int sep = message.indexOf(':');
+            long seq = sep > 0 ? parseLongOr(message, sep, 0) : 0;
+            if (historyFirstSeq == 0) historyFirstSeq = seq;
+            historyLastSeq = seq;
+            history.add(message.substring(sep + 1));
+            return;
+        }
+
+        // Construct the actual object
+        int idx = message.indexOf(':');
+        if (idx <= 0) {
+            return;
+        }
+        field(message.substring(0, idx).trim(), message.substring(idx + 1).trim());
+    }
+
+    // KEY:VALUE, split already (BIN1 fields come this way, the value as it was sent)
+    @Override
+    public void field(String key, String value) {
+        switch (key) {
+            case "TYPE" -> messageType = value;
+            case "PREFIX" -> prefix = value;
+            case "LIVES" -> lives = value;
+            case "A" -> a = value;
+            case "VERSION" -> version = parseIntOr(value, -1);
+            case "BASE" -> base = parseIntOr(value, -1);
+            case "FULL" -> full = "true".equalsIgnoreCase(value);
+            case "CATCHUP" -> catchUp = "true".equalsIgnoreCase(value);
+            case "TOKEN" -> token = value;
+            case "PROTO" -> proto = value;
+            case "TIME" -> time = parseIntOr(value, -1);
+            case "MS" -> ms = parseLongOr(value, value.length(), 0);
+            case "DEADLINE" -> deadline = parseLongOr(value, value.length(), 0);
+            case "SENT" -> sent = parseLongOr(value, value.length(), 0);
+            case "SERVER_TIME" -> serverTime = parseLongOr(value, value.length(), 0);
+            default -> { }
+        }
+    }
+
+    // the message fed in since the last call; the parser starts over
+    ParsedMessage finish() {
+        ParsedMessage parsed = new ParsedMessage(messageType, prefix, lives, a, history.isEmpty() ? List.of() : history,
+                historyFirstSeq, historyLastSeq, readiness.isEmpty() ? Map.of() : readiness, removed.isEmpty() ? List.of() : removed,
+                version, base, full, catchUp, token, proto, time, ms, deadline, sent, serverTime);
+        // the message keeps the collections it got, the parser takes new ones
+        if (!history.isEmpty()) history = new ArrayList<>();
+        if (!readiness.isEmpty()) readiness = new HashMap<>();
+        if (!removed.isEmpty()) removed = new ArrayList<>();
+        messageType = prefix = lives = a = token = proto = null;
+        readingPlayersSection = readingHistorySection = false;
+        historyFirstSeq = historyLastSeq = 0;
+        version = base = time = -1;
+        ms = deadline = sent = serverTime = 0;
+        full = catchUp = false;
+        return parsed;
+    }
+
+    static int parseIntOr(String value, int fallback) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    // the number in value[0, end) (no substring needed for a history SEQ)
+    static long parseLongOr(String value, int end, long fallback) {
+        try {
+            return Long.parseLong(value, 0, end, 10);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
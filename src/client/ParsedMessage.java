@@ -1,21 +1,52 @@
 package client;
 
+import java.util.List;
 import java.util.Map;
 
 public class ParsedMessage {
     final String type;            
-    final String prefix; 
+    final String prefix; // null if not part of this update
     final String lives;
     final String a;     
-    final String history;
-    final Map<String, Boolean> playerReadiness;
+    final List<String> history; // new history entries only (all of them when full), without their sequence numbers
+    final long historyFirstSeq; // sequence number of the first line in history, 0 if none
+    final long historyLastSeq;
+    final Map<String, Boolean> playerReadiness; // players that joined or changed
+    final List<String> removedPlayers;
+    final int version; // STATE_UPDATE version, -1 if missing
+    final int base; // version this delta applies on top of
+    final boolean full; // full snapshot instead of a delta
+    final boolean catchUp; // after a RESUME: all fields and players, but only the history we missed
+    final String token; // resume token (JOINED)
+    final String proto; // PROTO the server switched to, null if none
+    final int time; // seconds of a countdown (HINT_STARTED, CONNECTION_WINDOW), -1 if missing
+    final long ms; // wait before reconnecting (RETRY_AFTER), 0 if missing
+    final long deadline; // when the countdown ends, on the server's clock (epoch ms), 0 if missing
+    final long sent; // our clock when we sent the PING this PONG answers, 0 if missing
+    final long serverTime; // server's clock when it answered the PING, 0 if missing
 
-    public ParsedMessage(String type, String prefix, String lives, String a, String history, Map<String, Boolean> playerReadiness) {
+    public ParsedMessage(String type, String prefix, String lives, String a, List<String> history, long historyFirstSeq, long historyLastSeq,
+                         Map<String, Boolean> playerReadiness, List<String> removedPlayers, int version, int base, boolean full,
+                         boolean catchUp, String token, String proto, int time, long ms, long deadline, long sent, long serverTime) {
         this.type = type;
         this.prefix = prefix;
         this.lives = lives;
         this.a = a;
         this.history = history;
+        this.historyFirstSeq = historyFirstSeq;
+        this.historyLastSeq = historyLastSeq;
         this.playerReadiness = playerReadiness;
+        this.removedPlayers = removedPlayers;
+        this.version = version;
+        this.base = base;
+        this.full = full;
+        this.catchUp = catchUp;
+        this.token = token;
+        this.proto = proto;
+        this.time = time;
+        this.ms = ms;
+        this.deadline = deadline;
+        this.sent = sent;
+        this.serverTime = serverTime;
     }
 }
@@ -0,0 +1,104 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// what the listener thread received but the FX thread hasn't shown yet, merged into one change.
+// A server action usually sends two or three messages back to back (an event, then a STATE_UPDATE):
+// instead of a Platform.runLater each, they are folded in here and ClientController shows the result
+// once per pulse. The listener thread merges, the FX thread take()s (no JavaFX here either).
+// The pulse only runs while there is something to show: the first change after a take() calls `wake`
+final class PendingView {
+    String prefix, lives, a; // latest value, null: unchanged
+    Map<String, Boolean> players; // latest player list (a copy), null: unchanged
+    boolean replaceHistory; // `history` is the whole log (snapshot), not just new entries
+    final List<String> history = new ArrayList<>(); // entries to append (or the whole log)
+    final List<String> older = new ArrayList<>(); // entries to put in front (HISTORY_PAGE)
+    Boolean hasOlder; // "Load older" button, null: unchanged
+    Boolean guessOpen; // guess buttons, null: unchanged
+    long countdownDeadline = -1; // System.nanoTime() the countdown ends at, 0: stop it, -1: unchanged
+    private boolean empty = true;
+    private final Runnable wake; // null: nobody to wake (the copies take() hands out)
+
+    PendingView() {
+        this(null);
+    }
+
+    PendingView(Runnable wake) {
+        this.wake = wake;
+    }
+
+    // one STATE_UPDATE; `full` replaces the history instead of appending to it
+    synchronized void state(String prefix, String lives, String a, Map<String, Boolean> players,
+                            List<String> entries, boolean full, boolean hasOlder) {
+        if (prefix != null) this.prefix = prefix;
+        if (lives != null) this.lives = lives;
+        if (a != null) this.a = a;
+        if (players != null) this.players = players;
+        if (full) { // whatever was still pending is part of the snapshot
+            replaceHistory = true;
+            history.clear();
+            older.clear();
+        }
+        history.addAll(entries);
+        this.hasOlder = hasOlder;
+        changed();
+    }
+
+    // a page of older entries, right before what's shown (or pending)
+    synchronized void olderPage(List<String> entries, boolean hasOlder) {
+        if (replaceHistory) history.addAll(0, entries);
+        else older.addAll(0, entries);
+        this.hasOlder = hasOlder;
+        changed();
+    }
+
+    synchronized void guessOpen(boolean open) {
+        guessOpen = open;
+        changed();
+    }
+
+    synchronized void countdown(long deadline) {
+        countdownDeadline = deadline;
+        changed();
+    }
+
+    // something to show now; wakes the pulse if it's the first since the last take()
+    private void changed() {
+        if (!empty) return;
+        empty = false;
+        if (wake != null) wake.run();
+    }
+
+    // everything merged since the last call (null if nothing), and start over
+    synchronized PendingView take() {
+        if (empty) return null;
+        PendingView u = new PendingView();
+        u.prefix = prefix;
+        u.lives = lives;
+        u.a = a;
+        u.players = players;
+        u.replaceHistory = replaceHistory;
+        u.history.addAll(history);
+        u.older.addAll(older);
+        u.hasOlder = hasOlder;
+        u.guessOpen = guessOpen;
+        u.countdownDeadline = countdownDeadline;
+        clear();
+        return u;
+    }
+
+    // drop everything (disconnect)
+    synchronized void clear() {
+        prefix = lives = a = null;
+        players = null;
+        replaceHistory = false;
+        history.clear();
+        older.clear();
+        hasOlder = null;
+        guessOpen = null;
+        countdownDeadline = -1;
+        empty = true;
+    }
+}
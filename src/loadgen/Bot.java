@@ -0,0 +1,140 @@
+package loadgen;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import protocol.BinaryCodec;
+import protocol.FieldSink;
+import protocol.OutMessage;
+import protocol.WireReader;
+
+// one simulated player: a socket, a reader (virtual) thread stamping every message on arrival,
+// and an inbox the game driver waits on
+final class Bot {
+    static final AtomicLong sent = new AtomicLong(), received = new AtomicLong(); // totals for the report
+
+    // a message from the server with its arrival time. Filled while the reader decodes it: the first
+    // value of each key, and every whole line (players, history entries)
+    static final class Received implements FieldSink {
+        long nanos;
+        String type;
+        private final Map<String, String> fields = new HashMap<>();
+        final List<String> lines = new ArrayList<>();
+
+        Received() {}
+
+        private Received(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public void line(String line) {
+            lines.add(line);
+            int colon = line.indexOf(':');
+            if (colon > 0) field(line.substring(0, colon), line.substring(colon + 1).trim());
+        }
+
+        @Override
+        public void field(String key, String value) {
+            if ("TYPE".equals(key) && type == null) type = value;
+            fields.putIfAbsent(key, value);
+        }
+
+        String get(String key) {
+            return fields.get(key);
+        }
+    }
+
+    private static final Received CLOSED = new Received("CLOSED");
+
+    final String name;
+    private final Socket sock;
+    private final OutputStream out;
+    private final BlockingQueue<Received> inbox = new LinkedBlockingQueue<>();
+    private volatile boolean binary = false; // server confirmed BIN1
+    private volatile boolean eof = false; // server closed the connection
+
+    Bot(String name, String host, int port) throws IOException {
+        this.name = name;
+        this.sock = new Socket(host, port);
+        sock.setTcpNoDelay(true);
+        this.out = new BufferedOutputStream(sock.getOutputStream());
+        WireReader in = new WireReader(sock.getInputStream());
+        Thread.ofVirtual().name("bot-" + name).start(() -> readLoop(in));
+    }
+
+    private void readLoop(WireReader in) {
+        try {
+            while (true) {
+                Received r = new Received();
+                if (!in.next(r)) break;
+                r.nanos = System.nanoTime();
+                received.incrementAndGet();
+                if ("PROTO".equals(r.type)) binary = BinaryCodec.NAME.equals(r.get("PROTO"));
+                if ("PING".equals(r.type)) { // server heartbeat, answered like the real client does
+                    send(OutMessage.of("PONG"));
+                    continue;
+                }
+                inbox.add(r);
+            }
+        } catch (IOException ignored) {
+        } finally {
+            eof = true;
+            inbox.add(CLOSED);
+        }
+    }
+
+    // returns the send time, the start of the round trip
+    synchronized long send(OutMessage m) throws IOException {
+        long now = System.nanoTime();
+        out.write(binary ? BinaryCodec.encode(m) : (m.text() + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        sent.incrementAndGet();
+        return now;
+    }
+
+    // first message of `type` that arrived after `since` and matches, null on timeout or disconnect.
+    // An ERROR or RETRY_AFTER that arrived after `since` is returned too (the request was refused). Everything else is skipped.
+    Received await(String type, long since, Predicate<Received> match, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (true) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) return null;
+            Received r = inbox.poll(left, TimeUnit.NANOSECONDS);
+            if (r == null) return null;
+            if (r == CLOSED) {
+                inbox.add(CLOSED); // keep telling later waits
+                return null;
+            }
+            if (r.nanos < since) continue;
+            if ("ERROR".equals(r.type) || "RETRY_AFTER".equals(r.type) || (type.equals(r.type) && (match == null || match.test(r)))) return r;
+        }
+    }
+
+    Received await(String type, long since, long timeoutMs) throws InterruptedException {
+        return await(type, since, null, timeoutMs);
+    }
+
+    // forget whatever arrived so far (broadcasts nobody waits for)
+    void drain() {
+        inbox.clear();
+        if (eof) inbox.add(CLOSED);
+    }
+
+    void close() {
+        try {
+            sock.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,62 @@
+package loadgen;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+// round-trip samples per message type; percentiles are exact (samples are kept and sorted at report time)
+final class Latencies {
+    private final Map<String, long[]> samples = new TreeMap<>();
+    private final Map<String, Integer> counts = new TreeMap<>();
+    private final Map<String, Integer> timeouts = new TreeMap<>();
+    private final Map<String, Integer> errors = new TreeMap<>(); // "TYPE: server message" -> count
+
+    synchronized void record(String type, long nanos) {
+        long[] s = samples.computeIfAbsent(type, k -> new long[1024]);
+        int n = counts.getOrDefault(type, 0);
+        if (n == s.length) {
+            s = Arrays.copyOf(s, n * 2);
+            samples.put(type, s);
+        }
+        s[n] = nanos;
+        counts.put(type, n + 1);
+    }
+
+    synchronized void timeout(String type) {
+        timeouts.merge(type, 1, Integer::sum);
+    }
+
+    synchronized void error(String type, String msg) {
+        errors.merge(type + ": " + msg, 1, Integer::sum);
+    }
+
+    synchronized String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-14s %9s %9s %9s %9s %9s %9s%n", "type", "count", "p50 ms", "p99 ms", "p999 ms", "max ms", "timeouts"));
+        for (Map.Entry<String, long[]> e : samples.entrySet()) {
+            int n = counts.get(e.getKey());
+            long[] s = Arrays.copyOf(e.getValue(), n);
+            Arrays.sort(s);
+            sb.append(String.format("%-14s %9d %9.3f %9.3f %9.3f %9.3f %9d%n", e.getKey(), n,
+                    ms(pct(s, 0.50)), ms(pct(s, 0.99)), ms(pct(s, 0.999)), ms(s[n - 1]), timeouts.getOrDefault(e.getKey(), 0)));
+        }
+        for (Map.Entry<String, Integer> e : timeouts.entrySet()) { // types that never got an answer at all
+            if (!samples.containsKey(e.getKey())) {
+                sb.append(String.format("%-14s %9d %9s %9s %9s %9s %9d%n", e.getKey(), 0, "-", "-", "-", "-", e.getValue()));
+            }
+        }
+        for (Map.Entry<String, Integer> e : errors.entrySet()) {
+            sb.append(String.format("error %dx %s%n", e.getValue(), e.getKey()));
+        }
+        return sb.toString();
+    }
+
+    private static long pct(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
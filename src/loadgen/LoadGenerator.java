@@ -0,0 +1,249 @@
+package loadgen;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
+
+/**
+ * LoadGenerator class
+ * Headless bots playing whole games against a GameServer on this machine, over the normal protocol.
+ * Players arrive at --rate per second and are grouped into rooms of --players-per-game. Each game runs
+ * CREATE_ROOM, JOIN, READY, SET_SECRET, then --cycles rounds of START_HINT, CONNECT, SUBMIT_GUESS
+ * (plus a PING), and ends early when the game is over.
+ * Round trip = request sent until the first matching reply/broadcast arrived at the sender:
+ *   CREATE_ROOM→ROOM_CREATED, JOIN→JOINED, READY→PLAYER_READY, SET_SECRET→STATE_UPDATE,
+ *   START_HINT→HINT_STARTED, CONNECT→CONNECTION_WINDOW, SUBMIT_GUESS→STATE_UPDATE, PING→PONG
+ *
+ * usage: LoadGenerator [--port=5000] [--players=1000] [--rate=200] [--players-per-game=3] [--cycles=10]
+ *                      [--think-ms=0] [--timeout-ms=10000] [--bin1] [--spawn-server[=server args]]
+ */
+public class LoadGenerator {
+    private static final String SECRET = "umbrellas";
+
+    private String host = "127.0.0.1";
+    private int port = 5000;
+    private int players = 1000;
+    private double rate = 200; // arriving players per second
+    private int perGame = 3;
+    private int cycles = 10;
+    private long thinkMs = 0; // pause between a game's actions
+    private long timeoutMs = 10_000;
+    private boolean bin1 = false;
+    private String spawnServer = null; // extra GameServer args when we start the server ourselves
+
+    private final Latencies latencies = new Latencies();
+    private final AtomicInteger gamesDone = new AtomicInteger(), gamesFailed = new AtomicInteger();
+    private final AtomicInteger activeGames = new AtomicInteger();
+    private final String runId = Long.toString(System.currentTimeMillis() % 100000, 36); // room names stay unique across runs
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator lg = new LoadGenerator();
+        for (String arg : args) {
+            String v = arg.contains("=") ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--host=")) lg.host = v;
+            else if (arg.startsWith("--port=")) lg.port = Integer.parseInt(v);
+            else if (arg.startsWith("--players=")) lg.players = Integer.parseInt(v);
+            else if (arg.startsWith("--rate=")) lg.rate = Double.parseDouble(v);
+            else if (arg.startsWith("--players-per-game=")) lg.perGame = Integer.parseInt(v);
+            else if (arg.startsWith("--cycles=")) lg.cycles = Integer.parseInt(v);
+            else if (arg.startsWith("--think-ms=")) lg.thinkMs = Long.parseLong(v);
+            else if (arg.startsWith("--timeout-ms=")) lg.timeoutMs = Long.parseLong(v);
+            else if (arg.equals("--bin1")) lg.bin1 = true;
+            else if (arg.startsWith("--spawn-server")) lg.spawnServer = v;
+            else {
+                System.out.println("Unknown option " + arg);
+                return;
+            }
+        }
+        if (!InetAddress.getByName(lg.host).isLoopbackAddress()) { // never point this at somebody else's server
+            System.out.println("Load generator only runs against localhost");
+            return;
+        }
+        if (lg.perGame < 3) {
+            System.out.println("A game needs at least 3 players");
+            return;
+        }
+        lg.run();
+    }
+
+    private void run() throws Exception {
+        Process server = spawnServer == null ? null : startServer();
+        try {
+            int games = (players + perGame - 1) / perGame;
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) * perGame / rate); // one game's worth of players arrives
+            System.out.printf("%d players in %d games of %d, %.0f players/s, %d cycles%s%n",
+                    games * perGame, games, perGame, rate, cycles, bin1 ? ", BIN1" : "");
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            long nextReport = start + TimeUnit.SECONDS.toNanos(5);
+            for (int g = 0; g < games; g++) {
+                long due = start + g * interval;
+                long now;
+                while ((now = System.nanoTime()) < due) {
+                    TimeUnit.NANOSECONDS.sleep(Math.min(due - now, TimeUnit.MILLISECONDS.toNanos(100)));
+                    if (System.nanoTime() >= nextReport) { progress(start); nextReport += TimeUnit.SECONDS.toNanos(5); }
+                }
+                int gameNo = g;
+                threads.add(Thread.ofVirtual().name("game-" + g).start(() -> playGame(gameNo)));
+            }
+            for (Thread t : threads) {
+                while (!t.join(Duration.ofSeconds(5))) progress(start);
+            }
+            double secs = (System.nanoTime() - start) / 1e9;
+            System.out.println();
+            System.out.printf("%.1f s, games done %d, failed %d%n", secs, gamesDone.get(), gamesFailed.get());
+            System.out.printf("throughput: %.0f msg/s sent, %.0f msg/s received, %.1f games/s%n",
+                    Bot.sent.get() / secs, Bot.received.get() / secs, gamesDone.get() / secs);
+            System.out.print(latencies.report());
+        } finally {
+            if (server != null) server.destroy();
+        }
+    }
+
+    private void progress(long start) {
+        System.out.printf("[%5.1fs] active games %d, done %d, failed %d, sent %d, received %d%n",
+                (System.nanoTime() - start) / 1e9, activeGames.get(), gamesDone.get(), gamesFailed.get(),
+                Bot.sent.get(), Bot.received.get());
+    }
+
+    // same java and classpath as us, output dropped (it logs every broadcast)
+    private Process startServer() throws Exception {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add("server.GameServer");
+        cmd.add(Integer.toString(port));
+        for (String a : spawnServer.split("\\s+")) if (!a.isEmpty()) cmd.add(a);
+        Process p = new ProcessBuilder(cmd).redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) { // wait until it accepts
+            try {
+                new Socket(host, port).close();
+                return p;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        p.destroy();
+        throw new IOException("Spawned server did not start on port " + port);
+    }
+
+    private void playGame(int gameNo) {
+        activeGames.incrementAndGet();
+        List<Bot> bots = new ArrayList<>();
+        try {
+            for (int i = 0; i < perGame; i++) bots.add(new Bot("g" + gameNo + "p" + i, host, port));
+            if (play("lg-" + runId + "-" + gameNo, bots)) gamesDone.incrementAndGet();
+            else gamesFailed.incrementAndGet();
+        } catch (IOException e) {
+            gamesFailed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Bot b : bots) b.close();
+            activeGames.decrementAndGet();
+        }
+    }
+
+    // false if the server stopped answering somewhere
+    private boolean play(String room, List<Bot> bots) throws IOException, InterruptedException {
+        Random rnd = ThreadLocalRandom.current();
+        Bot first = bots.get(0);
+        if (roundTrip(first, "CREATE_ROOM", OutMessage.of("CREATE_ROOM").put("ROOM", room), "ROOM_CREATED", null) == null) return false;
+        for (Bot b : bots) {
+            OutMessage join = OutMessage.of("JOIN").put("NAME", b.name).put("ROOM", room);
+            if (bin1) join.put("PROTO", BinaryCodec.NAME);
+            if (roundTrip(b, "JOIN", join, "JOINED", null) == null) return false;
+        }
+        long readySince = System.nanoTime();
+        for (Bot b : bots) {
+            if (roundTrip(b, "READY", OutMessage.of("READY"), "PLAYER_READY", r -> b.name.equals(r.get("NAME"))) == null) return false;
+        }
+        Bot.Received roles = first.await("ROLES_ASSIGNED", readySince, timeoutMs);
+        if (roles == null) return false;
+        Bot a = null;
+        List<Bot> team = new ArrayList<>();
+        for (Bot b : bots) {
+            if (b.name.equals(roles.get("A"))) a = b;
+            else team.add(b);
+        }
+        if (a == null) return false;
+        String prefix = SECRET.substring(0, 1);
+        String firstPrefix = prefix;
+        // the update carrying the new prefix, not one still in flight from the READY phase
+        if (roundTrip(a, "SET_SECRET", OutMessage.of("SET_SECRET").put("SECRET", SECRET), "STATE_UPDATE", r -> firstPrefix.equals(r.get("PREFIX"))) == null) return false;
+
+        for (int c = 0; c < cycles; c++) {
+            for (Bot b : bots) b.drain();
+            Bot b1 = team.get(rnd.nextInt(team.size()));
+            Bot b2;
+            do { b2 = team.get(rnd.nextInt(team.size())); } while (b2 == b1);
+            Bot giver = b1, requester = b2;
+            String intended = prefix + "zz" + c; // starts with the prefix, never the secret
+            think();
+            if (roundTrip(b1, "START_HINT", OutMessage.of("START_HINT").put("HINT", "hint " + c).put("INTENDED", intended),
+                    "HINT_STARTED", r -> giver.name.equals(r.get("GIVER"))) == null) return false;
+            think();
+            if (roundTrip(b2, "CONNECT", OutMessage.of("CONNECT"), "CONNECTION_WINDOW", r -> requester.name.equals(r.get("B2"))) == null) return false;
+            // 40% success, 40% failed connection, 20% A reads the hint (life lost)
+            int roll = rnd.nextInt(10);
+            String aGuess = roll < 2 ? intended : "nope";
+            String b2Guess = roll < 6 ? intended : "nope";
+            think();
+            Bot defender = a;
+            if (roundTrip(a, "SUBMIT_GUESS", OutMessage.of("SUBMIT_GUESS").put("GUESS", aGuess), "STATE_UPDATE", r -> guessed(r, defender)) == null) return false;
+            long since = b2.send(OutMessage.of("SUBMIT_GUESS").put("GUESS", b2Guess));
+            Bot.Received update = b2.await("STATE_UPDATE", since, r -> guessed(r, requester), timeoutMs);
+            if (update == null) { latencies.timeout("SUBMIT_GUESS"); return false; }
+            if ("ERROR".equals(update.type)) { latencies.error("SUBMIT_GUESS", update.get("MSG")); return false; }
+            latencies.record("SUBMIT_GUESS", update.nanos - since);
+            Bot.Received outcome = b2.await(roll < 2 ? "LIFE_LOST" : roll < 6 ? "CONNECTION_SUCCESS" : "CONNECTION_FAILED", since, timeoutMs);
+            if (outcome == null || "ERROR".equals(outcome.type)) { latencies.timeout("resolution"); return false; }
+            if ("CONNECTION_SUCCESS".equals(outcome.type)) prefix = outcome.get("NEW_PREFIX");
+            if (roundTrip(b1, "PING", OutMessage.of("PING"), "PONG", null) == null) return false;
+            boolean over = ("LIFE_LOST".equals(outcome.type) && "0".equals(outcome.get("REMAINING")))
+                    || (prefix != null && prefix.length() >= SECRET.length());
+            if (over || prefix == null) break;
+        }
+        return true;
+    }
+
+    private Bot.Received roundTrip(Bot bot, String label, OutMessage msg, String reply, Predicate<Bot.Received> match)
+            throws IOException, InterruptedException {
+        long since = bot.send(msg);
+        Bot.Received r = bot.await(reply, since, match, timeoutMs);
+        if (r == null) latencies.timeout(label);
+        else if ("ERROR".equals(r.type) || "RETRY_AFTER".equals(r.type)) { // RETRY_AFTER: admission control turned the bot away
+            latencies.error(label, r.get("MSG"));
+            return null;
+        }
+        else latencies.record(label, r.nanos - since);
+        return r;
+    }
+
+    // the STATE_UPDATE whose history has this bot's guess
+    private static boolean guessed(Bot.Received r, Bot b) {
+        String entry = b.name + " submitted guess (masked).";
+        for (String l : r.lines) {
+            if (l.endsWith(entry)) return true;
+        }
+        return false;
+    }
+
+    private void think() throws InterruptedException {
+        if (thinkMs > 0) Thread.sleep(thinkMs);
+    }
+}
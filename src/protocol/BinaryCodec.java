@@ -0,0 +1,126 @@
+package protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BinaryCodec class
+ * Compact framing for the same messages as the text protocol ("BIN1"), negotiated with PROTO:BIN1 in JOIN.
+ * Values are length-prefixed, so unlike text lines they can hold anything, line breaks included.
+ *
+ * frame  = MARKER, varint type, varint bodyLength, field*
+ * field  = varint tag, varint length, UTF-8 bytes
+ *
+ * type is an index into TYPES (0: unknown, then TYPE travels as a field). tag is an index into KEYS for
+ * KEY:VALUE lines; tag 0 carries a whole line as is (section markers, players, history entries).
+ * MARKER can't start a text line, so a reader can tell binary frames and text messages apart.
+ */
+public final class BinaryCodec {
+    public static final String NAME = "BIN1";
+    public static final int MARKER = 0x01;
+
+    private static final String[] TYPES = {
+        null, "JOIN", "JOINED", "CREATE_ROOM", "ROOM_CREATED", "LEAVE_ROOM", "LEFT_ROOM", "READY", "SET_SECRET",
+        "START_HINT", "CONNECT", "SUBMIT_GUESS", "PING", "PONG", "RESYNC", "HISTORY_PAGE", "STATE_UPDATE",
+        "PLAYER_JOINED", "PLAYER_LEFT", "PLAYER_READY", "ROLES_ASSIGNED", "INFO", "ERROR", "HINT_STARTED",
+        "CONNECTION_WINDOW", "LIFE_LOST", "GAME_OVER", "CONNECTION_SUCCESS", "CONNECTION_FAILED", "HINT_TIMEOUT", "PROTO",
+        "STATS", "RESUME", "RESUMED", "RESUME_FAILED", "RETRY_AFTER", "ADD_BOT"
+    };
+    private static final String[] KEYS = {
+        null, "TYPE", "NAME", "ROOM", "MSG", "SECRET", "HINT", "INTENDED", "GUESS", "GIVER", "TIME", "B2", "A",
+        "WINNER", "REMAINING", "NEW_PREFIX", "LIVES", "PREFIX", "VERSION", "BASE", "FULL", "BEFORE", "LIMIT", "PROTO",
+        "TOKEN", "SEQ", "CATCHUP", "MS", "SENT", "SERVER_TIME", "DEADLINE"
+    };
+    private static final Map<String, Integer> TYPE_CODES = index(TYPES);
+    private static final Map<String, Integer> KEY_TAGS = index(KEYS);
+
+    private BinaryCodec() {}
+
+    // code of a TYPE value, 0 if it has none
+    public static int typeCode(String type) {
+        Integer code = TYPE_CODES.get(type);
+        return code == null ? 0 : code;
+    }
+
+    public static String typeName(int code) {
+        return code > 0 && code < TYPES.length ? TYPES[code] : null;
+    }
+
+    // tag of a key, 0 if it has none (the line then travels as a raw tag 0 field)
+    public static int keyTag(String key) {
+        Integer tag = KEY_TAGS.get(key);
+        return tag == null ? 0 : tag;
+    }
+
+    // a message -> one binary frame. Values go as they are: a tagged field, or a tag 0 line
+    public static byte[] encode(OutMessage m) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(64);
+        int type = typeCode(m.type());
+        if (type == 0) writeField(body, KEY_TAGS.get("TYPE"), m.type());
+        for (int i = 0; i < m.size(); i++) {
+            String key = m.key(i);
+            Integer tag = key == null ? null : KEY_TAGS.get(key);
+            if (tag != null) writeField(body, tag, m.value(i));
+            else writeField(body, 0, key == null ? m.value(i) : key + ":" + m.value(i));
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(body.size() + 8);
+        frame.write(MARKER);
+        writeVarint(frame, type);
+        writeVarint(frame, body.size());
+        frame.writeBytes(body.toByteArray());
+        return frame.toByteArray();
+    }
+
+    // body of a frame -> `sink`, field by field as they're decoded (TYPE first)
+    public static void decode(int type, byte[] body, int off, int len, FieldSink sink) throws IOException {
+        if (type > 0 && type < TYPES.length) sink.field("TYPE", TYPES[type]);
+        int[] pos = {off};
+        int end = off + len;
+        while (pos[0] < end) {
+            int tag = readVarint(body, pos, end);
+            int n = readVarint(body, pos, end);
+            if (n < 0 || pos[0] + n > end) throw new IOException("Bad binary field");
+            String value = new String(body, pos[0], n, StandardCharsets.UTF_8);
+            pos[0] += n;
+            if (tag == 0) sink.line(value);
+            else if (tag < KEYS.length) sink.field(KEYS[tag], value);
+            // unknown tags from a newer peer are skipped
+        }
+    }
+
+    static void writeField(ByteArrayOutputStream out, int tag, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, tag);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    public static void writeVarint(ByteArrayOutputStream out, int v) {
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    // pos[0] is advanced past the varint
+    static int readVarint(byte[] buf, int[] pos, int end) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos[0] >= end) throw new IOException("Truncated varint");
+            int b = buf[pos[0]++] & 0xFF;
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static Map<String, Integer> index(String[] names) {
+        Map<String, Integer> m = new HashMap<>();
+        for (int i = 1; i < names.length; i++) m.put(names[i], i);
+        return m;
+    }
+}
@@ -0,0 +1,11 @@
+package protocol;
+
+// what WireReader hands over while it decodes a message. A text message is all lines; a BIN1 frame gives its
+// tagged fields already split (key is one of BinaryCodec's constants, the value as sent, line breaks included)
+// and its tag 0 fields as lines. So nobody glues "KEY:" + value together only to split it again
+public interface FieldSink {
+    // a whole line: KEY:VALUE, a section marker, a player, a history entry ...
+    void line(String line);
+
+    void field(String key, String value);
+}
@@ -0,0 +1,74 @@
+package protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OutMessage class
+ * A message to send, kept as its fields in order: TYPE, then KEY:VALUE fields and whole lines
+ * (section markers, players, history entries). Both encodings are made from it. BIN1 carries
+ * every value as is, line breaks included (BinaryCodec.encode); text() has to keep each one on its line.
+ */
+public final class OutMessage {
+    private final String type;
+    private final List<String> keys = new ArrayList<>(); // null: a whole line (BIN1 tag 0)
+    private final List<String> values = new ArrayList<>();
+
+    private OutMessage(String type) {
+        this.type = type;
+    }
+
+    public static OutMessage of(String type) {
+        return new OutMessage(type);
+    }
+
+    // KEY:value (numbers and booleans as their toString)
+    public OutMessage put(String key, Object value) {
+        keys.add(key);
+        values.add(String.valueOf(value));
+        return this;
+    }
+
+    // a whole line as is (PLAYERS_START, PLAYER:name:READY:true, SEQ:entry ...)
+    public OutMessage line(String line) {
+        keys.add(null);
+        values.add(line);
+        return this;
+    }
+
+    public String type() { return type; }
+
+    public int size() { return keys.size(); }
+
+    // key of field i, null if it's a whole line
+    public String key(int i) { return keys.get(i); }
+
+    public String value(int i) { return values.get(i); }
+
+    // value of the first `key` field, null if there's none
+    public String get(String key) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (key.equals(keys.get(i))) return values.get(i);
+        }
+        return null;
+    }
+
+    // the text encoding, without the blank-line terminator. A line break in a value would end its line
+    // there and let the rest pass for lines (or messages) of their own, so text gets a space instead.
+    // A blank line would end the message: there are none
+    public String text() {
+        StringBuilder sb = new StringBuilder(16 * keys.size() + 16);
+        sb.append("TYPE:").append(type);
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i), value = values.get(i);
+            if (key == null && value.isBlank()) continue;
+            sb.append('\n');
+            if (key != null) sb.append(key).append(':');
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                sb.append(ch == '\n' || ch == '\r' ? ' ' : ch);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,93 @@
+package protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// blocking reader for one side of a connection: gives each message, whether it arrived as blank-line
+// terminated text (lines) or as a BIN1 frame (tagged fields and lines, see FieldSink).
+// next(sink) hands them over one by one as they're decoded, so a reader that parses
+// as it goes (the client) never holds the whole message twice.
+// Reads into its own buffer and looks for line ends in bulk, not a locked read() per byte
+public final class WireReader {
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    private final InputStream in;
+    private final byte[] buf = new byte[8 * 1024];
+    private int pos = 0, limit = 0; // unread bytes are buf[pos, limit)
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(256); // a line that spans two reads
+
+    public WireReader(InputStream in) {
+        this.in = in;
+    }
+
+    // the next message to `sink`, in order; false at end of stream (nothing was given)
+    public boolean next(FieldSink sink) throws IOException {
+        boolean any = false;
+        while (true) {
+            if (pos == limit && !fill()) return any;
+            if (buf[pos] == BinaryCodec.MARKER && !any && line.size() == 0) {
+                pos++;
+                readFrame(sink);
+                return true;
+            }
+            int nl = pos;
+            while (nl < limit && buf[nl] != '\n') nl++;
+            if (nl == limit) { // no line end yet: keep what we have, read more
+                line.write(buf, pos, limit - pos);
+                pos = limit;
+                continue;
+            }
+            String ln;
+            if (line.size() == 0) {
+                ln = new String(buf, pos, nl - pos, StandardCharsets.UTF_8);
+            } else {
+                line.write(buf, pos, nl - pos);
+                ln = line.toString(StandardCharsets.UTF_8);
+                line.reset();
+            }
+            pos = nl + 1;
+            if (ln.endsWith("\r")) ln = ln.substring(0, ln.length() - 1);
+            if (!ln.trim().isEmpty()) {
+                sink.line(ln);
+                any = true;
+            } else if (any) {
+                return true; // blank line ends the message
+            }
+        }
+    }
+
+    // the rest of a BIN1 frame whose MARKER was just consumed
+    private void readFrame(FieldSink sink) throws IOException {
+        int type = readVarint();
+        int len = readVarint();
+        if (len < 0 || len > MAX_FRAME) throw new IOException("Binary frame too large");
+        byte[] body = new byte[len];
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buf, pos, body, 0, n);
+        pos += n;
+        if (in.readNBytes(body, n, len - n) < len - n) throw new EOFException();
+        BinaryCodec.decode(type, body, 0, len, sink);
+    }
+
+    private int readVarint() throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (pos == limit && !fill()) throw new EOFException();
+            int b = buf[pos++] & 0xFF;
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buf, 0, buf.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+}
@@ -0,0 +1,61 @@
+package server;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AdmissionControl class
+ * Decides at accept time whether a new connection gets a handler, so a reconnect storm (every client
+ * of a restarted server coming back at once) can't pile up threads and handshakes.
+ * Two limits: at most `maxHandshakes` connections between accept and their JOIN / RESUME (or the
+ * handshake timeout), and a token bucket of `ratePerSecond` new connections (burst of one second).
+ * A refused client is told how long to wait; the hint carries jitter so they don't return in lockstep.
+ */
+class AdmissionControl {
+    static final int HANDSHAKE_TIMEOUT_SECONDS = 10; // a connection that hasn't joined by then stops counting
+
+    private final int maxHandshakes; // 0: no limit
+    private final int ratePerSecond; // 0: no limit
+    private final AtomicInteger handshakes = new AtomicInteger();
+    private double tokens; // guarded by this
+    private long refilledAt = System.nanoTime();
+
+    AdmissionControl(int maxHandshakes, int ratePerSecond) {
+        this.maxHandshakes = maxHandshakes;
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = ratePerSecond;
+    }
+
+    // 0 if the connection is admitted (it then holds a handshake slot), else milliseconds to wait before retrying
+    long admit() {
+        if (maxHandshakes > 0 && handshakes.get() >= maxHandshakes) {
+            return jitter(1000); // roughly what a handshake takes to clear
+        }
+        if (ratePerSecond > 0) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                tokens = Math.min(ratePerSecond, tokens + (now - refilledAt) * ratePerSecond / 1e9);
+                refilledAt = now;
+                if (tokens < 1) return jitter((long) Math.ceil((1 - tokens) * 1000 / ratePerSecond) + 100);
+                tokens -= 1;
+            }
+        }
+        handshakes.incrementAndGet();
+        return 0;
+    }
+
+    // the connection joined, left or timed out (ClientHandler makes sure it's called once).
+    // Never below zero: benchmarks build handlers that were never admitted
+    void handshakeDone() {
+        handshakes.updateAndGet(n -> Math.max(0, n - 1));
+    }
+
+    int getHandshakes() {
+        return handshakes.get();
+    }
+
+    // the wait plus up to as much again, at random
+    private static long jitter(long millis) {
+        return millis + ThreadLocalRandom.current().nextLong(millis + 1);
+    }
+}
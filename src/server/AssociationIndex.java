@@ -0,0 +1,150 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * AssociationIndex class
+ * What the bot Defender knows about words: which words go together, from a plain text file
+ * (--bot-index=FILE), one word per line followed by words associated with it:
+ *     ocean: sea water wave blue salt ship
+ * Associations count both ways. Built once at startup, then read only, so every bot shares it.
+ *
+ * Words are kept sorted, so the words with a prefix are one range of ids, and every word has a
+ * sorted posting list of the words associated with it (an inverted index from hint tokens to words).
+ * Ranking a hint only walks the part of each hint token's postings that falls in the prefix range.
+ */
+final class AssociationIndex {
+    private final String[] words; // sorted, lowercase
+    private final int[][] postings; // word id -> ids of associated words, sorted
+    private final boolean[] guessable; // in the server's dictionary (all of them without one)
+
+    private AssociationIndex(String[] words, int[][] postings, boolean[] guessable) {
+        this.words = words;
+        this.postings = postings;
+        this.guessable = guessable;
+    }
+
+    // `dictionary` may be null; words outside it still carry associations but are never guessed or picked as secret
+    static AssociationIndex load(Path file, Dictionary dictionary) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line; (line = r.readLine()) != null; ) lines.add(line);
+        }
+        return of(lines, dictionary);
+    }
+
+    static AssociationIndex of(List<String> lines, Dictionary dictionary) {
+        List<String[]> entries = new ArrayList<>(lines.size());
+        TreeSet<String> vocabulary = new TreeSet<>();
+        for (String line : lines) {
+            String[] tokens = tokens(line);
+            if (tokens.length < 2) continue; // a word and no associations
+            entries.add(tokens);
+            vocabulary.addAll(Arrays.asList(tokens));
+        }
+        String[] words = vocabulary.toArray(new String[0]);
+        // two passes: sizes first, so each posting list is one exact int[]
+        int[] degree = new int[words.length];
+        List<int[]> ids = new ArrayList<>(entries.size());
+        for (String[] e : entries) {
+            int[] id = new int[e.length];
+            for (int i = 0; i < e.length; i++) id[i] = Arrays.binarySearch(words, e[i]);
+            ids.add(id);
+            degree[id[0]] += id.length - 1;
+            for (int i = 1; i < id.length; i++) degree[id[i]]++;
+        }
+        int[][] postings = new int[words.length][];
+        for (int w = 0; w < words.length; w++) postings[w] = new int[degree[w]];
+        int[] fill = new int[words.length];
+        for (int[] id : ids) {
+            for (int i = 1; i < id.length; i++) {
+                postings[id[0]][fill[id[0]]++] = id[i];
+                postings[id[i]][fill[id[i]]++] = id[0];
+            }
+        }
+        for (int w = 0; w < words.length; w++) postings[w] = sortedUnique(postings[w], w);
+        boolean[] guessable = new boolean[words.length];
+        for (int w = 0; w < words.length; w++) guessable[w] = dictionary == null || dictionary.contains(words[w]);
+        return new AssociationIndex(words, postings, guessable);
+    }
+
+    int size() { return words.length; }
+
+    // best guess for what a B means by `hint` with a word starting with `prefix`, null if nothing starts with it.
+    // A candidate scores the idf of every hint token it's associated with (a rare association says more
+    // than "thing"); with no association at all, the best connected word with the prefix
+    String guess(String prefix, String hint) {
+        String p = prefix == null ? "" : prefix.trim().toLowerCase();
+        int lo = lowerBound(p), hi = lowerBound(p + Character.MAX_VALUE);
+        if (lo >= hi) return null;
+        String[] said = tokens(hint);
+        Map<Integer, Double> score = new HashMap<>();
+        for (String token : said) {
+            int t = Arrays.binarySearch(words, token);
+            if (t < 0 || postings[t].length == 0) continue;
+            int[] post = postings[t];
+            double idf = Math.log((double) words.length / post.length);
+            int j = Arrays.binarySearch(post, lo);
+            for (j = j < 0 ? -j - 1 : j; j < post.length && post[j] < hi; j++) score.merge(post[j], idf, Double::sum);
+        }
+        int best = -1;
+        double bestScore = 0;
+        for (Map.Entry<Integer, Double> e : score.entrySet()) {
+            int w = e.getKey();
+            if (!guessable[w] || Arrays.asList(said).contains(words[w])) continue; // B won't say the word itself
+            if (e.getValue() > bestScore || (e.getValue() == bestScore && w < best)) {
+                best = w;
+                bestScore = e.getValue();
+            }
+        }
+        if (best >= 0) return words[best];
+        for (int w = lo; w < hi; w++) { // nothing in the hint helps: the most associated word
+            if (guessable[w] && (best < 0 || postings[w].length > postings[best].length)) best = w;
+        }
+        return best < 0 ? null : words[best];
+    }
+
+    // a secret for the bot: a guessable word of at least `minLength` letters, null if there's none
+    String randomWord(Random rnd, int minLength) {
+        for (int tries = 0; tries < 1000 && words.length > 0; tries++) {
+            int w = rnd.nextInt(words.length);
+            if (guessable[w] && words[w].length() >= minLength && words[w].chars().allMatch(Character::isLetter)) return words[w];
+        }
+        return null;
+    }
+
+    private int lowerBound(String key) {
+        int i = Arrays.binarySearch(words, key);
+        return i < 0 ? -i - 1 : i;
+    }
+
+    private static int[] sortedUnique(int[] ids, int self) {
+        Arrays.sort(ids);
+        int n = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != self && (n == 0 || ids[n - 1] != ids[i])) ids[n++] = ids[i];
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    // lowercase words of a line or hint, anything that isn't a letter, digit or ' separates them
+    static String[] tokens(String text) {
+        if (text == null) return new String[0];
+        List<String> out = new ArrayList<>();
+        for (String t : text.toLowerCase().split("[^\\p{L}\\p{N}']+")) {
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out.toArray(new String[0]);
+    }
+}
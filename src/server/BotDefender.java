@@ -0,0 +1,100 @@
+package server;
+
+import java.util.Objects;
+import java.util.Random;
+import protocol.OutMessage;
+
+// a server-side player that takes the A role in practice rooms (ADD_BOT).
+// It is the Connection of an ordinary ClientHandler: what the room sends it is read in place (no socket,
+// no bytes), and it answers with the same commands a client would send, through handleMessage.
+// Everything it does happens inside the room task that sent it the message and only queues more room
+// tasks, so a bot costs no thread and a few hundred bot rooms share the game workers like any others.
+final class BotDefender implements Connection {
+    static final int MIN_SECRET_LENGTH = 5;
+
+    private final String name;
+    private final String roomId;
+    private final AssociationIndex index;
+    private final Random rnd = new Random();
+    private ClientHandler handler;
+    private volatile boolean closed = false;
+    // what the bot has seen of the game (only touched by the room's executor)
+    private boolean defender = false;
+    private String prefix = "";
+    private String hint = "";
+
+    private BotDefender(String name, String roomId, AssociationIndex index) {
+        this.name = name;
+        this.roomId = roomId;
+        this.index = index;
+    }
+
+    // seats a new bot in the room: it JOINs like a client and says READY once it's in
+    static void join(GameServer server, String roomId, String name) {
+        BotDefender bot = new BotDefender(name, roomId, server.getBotIndex());
+        bot.handler = new ClientHandler(bot, server, true);
+        bot.command(OutMessage.of("JOIN").put("NAME", name).put("ROOM", roomId));
+    }
+
+    @Override
+    public boolean send(Frame frame) {
+        if (closed) return true;
+        OutMessage msg = frame.message(); // the fields as the room built them, nothing to parse
+        switch (msg.type()) {
+            case "JOINED" -> command(OutMessage.of("READY"));
+            case "ROLES_ASSIGNED" -> {
+                defender = name.equals(msg.get("A"));
+                if (defender) setSecret();
+            }
+            case "STATE_UPDATE" -> { // a delta only has PREFIX when it changed
+                if (msg.get("PREFIX") != null) prefix = msg.get("PREFIX");
+            }
+            case "HINT_STARTED" -> hint = Objects.requireNonNullElse(msg.get("HINT"), "");
+            case "CONNECTION_WINDOW" -> {
+                if (defender) guess();
+            }
+            case "ERROR" -> { // the dictionary turned the secret down (it shouldn't): another one
+                if (defender && prefix.isEmpty() && String.valueOf(msg.get("MSG")).contains("Secret")) setSecret();
+            }
+            default -> { }
+        }
+        return true;
+    }
+
+    private void setSecret() {
+        String secret = index.randomWord(rnd, MIN_SECRET_LENGTH);
+        if (secret == null) {
+            System.out.println("[" + roomId + "] bot " + name + " has no word to play with");
+            return;
+        }
+        command(OutMessage.of("SET_SECRET").put("SECRET", secret));
+    }
+
+    // the window is 10 s, the answer takes microseconds; it's queued behind the broadcast that asked for it
+    private void guess() {
+        String word = index.guess(prefix, hint);
+        if (word != null) command(OutMessage.of("SUBMIT_GUESS").put("GUESS", word));
+    }
+
+    // one command, as if it had arrived on a socket (a fresh Message: handleMessage may read it later)
+    private void command(OutMessage command) {
+        Message m = new Message();
+        m.put("TYPE", command.type());
+        for (int i = 0; i < command.size(); i++) m.put(command.key(i), command.value(i));
+        handler.handleMessage(m);
+    }
+
+    @Override
+    public void clearPending() { } // nothing is ever pending
+
+    @Override
+    public void useBinary() { } // frames are read as text whatever the encoding
+
+    // the room gave the seat up (everyone else left) or the server is dropping the room
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        handler.cleanup();
+    }
+}
@@ -1,30 +1,86 @@
 package server; 
 import java.io.*; 
 import java.net.Socket; 
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
 
-// to handle one client connection in a thread
-public class ClientHandler extends Thread { 
-    private final Socket sock; // networking - client SOCKET
+// to handle one client connection: routes its messages to the room it joined.
+// In thread mode it runs its own read loop; in NIO mode the I/O threads feed handleMessage.
+// Room commands are queued on the room's executor, in the order the client sent them; this thread never waits for them.
+public final class ClientHandler implements Runnable { 
+    // the seat this connection holds (or asked for): a room and the player's name in it. For a RESUME the
+    // name is only known once the room has checked the token, so room tasks read it when they run
+    private static final class Seat {
+        final Room room;
+        volatile String name;
+
+        Seat(Room room, String name) {
+            this.room = room;
+            this.name = name;
+        }
+    }
+
+    private final Connection conn; // networking - how we talk to this client
     private final GameServer server; 
-    private final BufferedReader in; 
-    private final PrintWriter out; 
-    private String playerName = null; 
+    private final InputStream in; // only for the blocking read loop (null in NIO mode)
+    private final AtomicReference<Seat> seat = new AtomicReference<>(); // null until JOIN / RESUME
+    private volatile boolean resyncing = false; // a catch-up snapshot for a slow consumer is queued
     private volatile boolean running = true; // this flag is thread safe to control loop
+    private volatile long lastHeard = System.nanoTime(); // when the last message arrived (idle sweep)
+    private final AtomicBoolean handshaking = new AtomicBoolean(true); // holds an admission slot until JOIN / RESUME
+    private final TimingWheel.Timeout handshakeTimeout;
+    private final boolean bot; // an in-process player (BotDefender), not a socket
 
-    // constructor
+    // constructor (blocking socket, call run() on a thread)
     public ClientHandler(Socket sock, GameServer server) throws IOException { 
-        this.sock = sock; 
+        SocketConnection sc = new SocketConnection(sock, server.getWriters(), server.getOutboundLimit());
+        this.conn = sc; 
         this.server = server; 
-        this.in = new BufferedReader(new InputStreamReader(sock.getInputStream()));
-        this.out = new PrintWriter(sock.getOutputStream(), true);
+        this.in = sc.input();
+        this.bot = false;
+        server.connectionOpened(this);
+        this.handshakeTimeout = server.getTimers().schedule(this::endHandshake, AdmissionControl.HANDSHAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS, Runnable::run);
     }
 
-    @Override //Thread.run()
+    // constructor for transports that decode messages themselves (NIO)
+    ClientHandler(Connection conn, GameServer server) {
+        this(conn, server, false);
+    }
+
+    // a bot was never admitted and can't go quiet: no admission slot, no idle sweep, not counted as a connection
+    ClientHandler(Connection conn, GameServer server, boolean bot) {
+        this.conn = conn;
+        this.server = server;
+        this.in = null;
+        this.bot = bot;
+        if (bot) {
+            handshaking.set(false);
+            this.handshakeTimeout = null;
+            return;
+        }
+        server.connectionOpened(this);
+        this.handshakeTimeout = server.getTimers().schedule(this::endHandshake, AdmissionControl.HANDSHAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS, Runnable::run);
+    }
+
+    @Override //Runnable.run()
     public void run() {
+        LineDecoder decoder = new LineDecoder(); // same decoder as NIO: text messages and BIN1 frames
+        byte[] chunk = new byte[8 * 1024];
+        ByteBuffer buf = ByteBuffer.wrap(chunk, 0, 0);
         try {
             while (running) {
-                Message msg = Message.readFrom(in); // one message from client
-                if (msg == null) break;
+                Message msg = decoder.next(buf); // one message from client
+                if (msg == null) { // need more bytes
+                    int n = in.read(chunk);
+                    if (n < 0) break;
+                    buf.clear().limit(n);
+                    continue;
+                }
                 handleMessage(msg);
             }
         } catch (IOException e) {
@@ -35,79 +91,248 @@ public class ClientHandler extends Thread {
     }
 
     // each message has a TYPE field to route it, with error handling
-    private void handleMessage(Message msg) {
-        String type = msg.get("TYPE"); // Get message type
+    void handleMessage(Message msg) {
+        MessageType type = msg.getType(); // Get message type (no String unless it's unknown)
         if (type == null) { 
-            send("TYPE:ERROR\nMSG:Missing TYPE"); return; 
+            send(OutMessage.of("ERROR").put("MSG", "Missing TYPE")); return; 
         }
+        long start = System.nanoTime();
+        lastHeard = start; // any message proves the client is alive, PONG is just the cheapest one
+        if (!dispatch(type, msg, start)) server.getMetrics().handled(type, System.nanoTime() - start);
+    }
+
+    // true if the message was queued on a room (its task records the metric once it ran).
+    // `msg` is reused for the next message: values a task needs are read out before it's queued
+    private boolean dispatch(MessageType type, Message msg, long start) {
         switch (type) {
-            case "JOIN": {
-                String name = msg.get("NAME"); // gets name from message
-                if (name == null || name.trim().isEmpty()) { 
-                    send("TYPE:ERROR\nMSG:Missing NAME"); return; 
+            case CREATE_ROOM: { // creates a room, players then JOIN it with ROOM field
+                Room created = server.createRoom(msg.get(MessageField.ROOM));
+                if (created == null) {
+                    send(OutMessage.of("ERROR").put("MSG", "Room already exists")); return false;
                 }
-                playerName = name.trim();
-                server.registerHandler(playerName, this); 
-                send("TYPE:JOINED\nNAME:" + playerName);
+                send(OutMessage.of("ROOM_CREATED").put("ROOM", created.getId()));
                 break;
             }
-            case "SET_SECRET": {
-                if (playerName == null) { 
-                    send("TYPE:ERROR\nMSG:Register (JOIN) first"); return; 
+            case JOIN: {
+                String name = msg.get(MessageField.NAME); // gets name from message
+                if (name == null || name.trim().isEmpty()) { 
+                    send(OutMessage.of("ERROR").put("MSG", "Missing NAME")); return false; 
                 }
-                server.setSecret(playerName, msg.get("SECRET")); 
-                break;
+                Room target = server.getRoom(msg.get(MessageField.ROOM)); // no ROOM field -> default room
+                if (target == null) {
+                    send(OutMessage.of("ERROR").put("MSG", "No such room")); return false;
+                }
+                leaveRoom(); // switching rooms (or re-joining) frees the old seat first
+                if (BinaryCodec.NAME.equals(msg.get(MessageField.PROTO))) { // client speaks BIN1: confirm in text, then switch
+                    send(OutMessage.of("PROTO").put("PROTO", BinaryCodec.NAME));
+                    conn.useBinary();
+                }
+                String player = name.trim();
+                Seat s = new Seat(target, player);
+                seat.set(s); // commands sent after the JOIN queue up behind it
+                target.execute(() -> {
+                    String token = target.registerHandler(player, this);
+                    if (token == null) {
+                        seat.compareAndSet(s, null);
+                        send(OutMessage.of("ERROR").put("MSG", "Room closed"));
+                    } else {
+                        send(OutMessage.of("JOINED").put("NAME", player).put("ROOM", target.getId()).put("TOKEN", token));
+                        endHandshake();
+                    }
+                    server.getMetrics().handled(type, System.nanoTime() - start);
+                });
+                return true;
             }
-            case "READY": {
-                if (playerName == null) { 
-                    send("TYPE:ERROR\nMSG:Register first"); return; 
+            case RESUME: { // reconnected within the grace period: same seat, only the missed history (after SEQ)
+                String token = msg.get(MessageField.TOKEN);
+                Room target = server.roomForSession(token);
+                leaveRoom();
+                if (BinaryCodec.NAME.equals(msg.get(MessageField.PROTO))) {
+                    send(OutMessage.of("PROTO").put("PROTO", BinaryCodec.NAME));
+                    conn.useBinary();
                 }
-                server.markReady(playerName);
-                break;
+                long seq;
+                try {
+                    seq = Long.parseLong(msg.get(MessageField.SEQ));
+                } catch (NumberFormatException e) {
+                    seq = -1; // unknown: gets a full snapshot
+                }
+                if (target == null) {
+                    send(OutMessage.of("RESUME_FAILED").put("MSG", "Session expired, JOIN again")); break;
+                }
+                Seat s = new Seat(target, null);
+                seat.set(s);
+                long lastSeq = seq;
+                target.execute(() -> {
+                    String name = target.resume(token, lastSeq, this);
+                    if (name == null) {
+                        seat.compareAndSet(s, null);
+                        send(OutMessage.of("RESUME_FAILED").put("MSG", "Session expired, JOIN again"));
+                    } else {
+                        s.name = name;
+                        endHandshake();
+                    }
+                    server.getMetrics().handled(type, System.nanoTime() - start);
+                });
+                return true;
             }
-            case "START_HINT": { 
-                if (playerName == null) { 
-                    send("TYPE:ERROR\nMSG:Register first"); return; 
+            case LEAVE_ROOM: {
+                Seat s = seat.getAndSet(null);
+                if (s == null) { 
+                    send(OutMessage.of("ERROR").put("MSG", "Not in a room")); return false; 
                 }
-                server.startHint(playerName, msg.get("HINT"), msg.get("INTENDED"));
-                break;
+                s.room.execute(() -> {
+                    s.room.unregisterHandler(s.name, this);
+                    send(OutMessage.of("LEFT_ROOM").put("ROOM", s.room.getId()));
+                    server.getMetrics().handled(type, System.nanoTime() - start);
+                });
+                return true;
+            }
+            case SET_SECRET: {
+                String secret = msg.get(MessageField.SECRET);
+                return inRoom(type, start, (r, name) -> r.setSecret(name, secret));
+            }
+            case READY: {
+                return inRoom(type, start, Room::markReady);
+            }
+            case START_HINT: { 
+                String hint = msg.get(MessageField.HINT), intended = msg.get(MessageField.INTENDED);
+                return inRoom(type, start, (r, name) -> r.startHint(name, hint, intended));
+            }
+            case CONNECT: {
+                return inRoom(type, start, Room::requestConnect);
+            }
+            case SUBMIT_GUESS: {
+                String guess = msg.get(MessageField.GUESS);
+                return inRoom(type, start, (r, name) -> r.submitGuess(name, guess));
             }
-            case "CONNECT": {
-                if (playerName == null) { 
-                    send("TYPE:ERROR\nMSG:Register first"); return;
+            case RESYNC: { // client missed a STATE_UPDATE version, send everything again
+                return inRoom(type, start, (r, name) -> r.resync(this));
+            }
+            case HISTORY_PAGE: { // older history entries before BEFORE (at most LIMIT)
+                long before;
+                int limit;
+                try {
+                    before = Long.parseLong(msg.get(MessageField.BEFORE));
+                    String l = msg.get(MessageField.LIMIT);
+                    limit = l == null ? Room.MAX_HISTORY_PAGE : Integer.parseInt(l);
+                } catch (NumberFormatException e) {
+                    send(OutMessage.of("ERROR").put("MSG", "Bad BEFORE/LIMIT")); return false;
                 }
-                server.requestConnect(playerName); 
+                return inRoom(type, start, (r, name) -> r.sendHistoryPage(this, before, limit));
+            }
+            case PING: { // Heartbeat/keep-alive ping; a client timing the round trip gets its SENT back with our clock
+                String sent = msg.get(MessageField.SENT);
+                OutMessage pong = OutMessage.of("PONG");
+                if (sent != null) pong.put("SENT", sent).put("SERVER_TIME", System.currentTimeMillis());
+                send(pong);
                 break;
             }
-            case "SUBMIT_GUESS": {
-                if (playerName == null) { 
-                    send("TYPE:ERROR\nMSG:Register first"); return; 
-                }
-                server.submitGuess(playerName, msg.get("GUESS"));
+            case PONG: { // answer to the server's heartbeat, lastHeard is all it's for
                 break;
             }
-            case "PING": { // Heartbeat/keep-alive ping
-                send("TYPE:PONG"); 
+            case ADD_BOT: { // a bot Defender takes a seat in this room (practice without a human A)
+                return inRoom(type, start, (r, name) -> r.addBot(this));
+            }
+            case STATS: { // server metrics, same text as the --metrics-port endpoint
+                OutMessage stats = OutMessage.of("STATS");
+                for (String line : server.getMetrics().render().split("\n")) stats.line(line);
+                send(stats);
                 break;
             }
-            default: send("TYPE:ERROR\nMSG:Unknown TYPE " + type); 
+            default: send(OutMessage.of("ERROR").put("MSG", "Unknown TYPE " + msg.get(MessageField.TYPE))); 
+        }
+        return false;
+    }
+
+    // queues a player command on the room, which runs it if this connection still holds the seat by then
+    private boolean inRoom(MessageType type, long start, BiConsumer<Room, String> command) {
+        Seat s = seat.get();
+        if (s == null) {
+            send(OutMessage.of("ERROR").put("MSG", "Register (JOIN) first")); return false;
+        }
+        s.room.execute(() -> {
+            if (s.room.isSeated(s.name, this)) command.accept(s.room, s.name);
+            else send(OutMessage.of("ERROR").put("MSG", "Not seated in " + s.room.getId()));
+            server.getMetrics().handled(type, System.nanoTime() - start);
+        });
+        return true;
+    }
+
+    // send message to client (only queued, the connection takes care of thread safety and writing)
+    public void send(OutMessage msg) { 
+        send(Frame.of(msg));
+    }
+
+    // already encoded (broadcasts share one Frame between all clients)
+    void send(Frame frame) {
+        if (conn.send(frame)) return;
+        onSlowConsumer();
+    }
+
+    // the outbound queue is full: this client reads slower than the game talks
+    private void onSlowConsumer() {
+        SlowConsumerPolicy policy = server.getSlowConsumerPolicy();
+        if (policy == SlowConsumerPolicy.DROP) return; // a missed STATE_UPDATE ends in a RESYNC anyway
+        conn.clearPending();
+        Seat s = seat.get();
+        if (policy == SlowConsumerPolicy.DISCONNECT || s == null || resyncing) { // can't even take a snapshot
+            System.out.println("Disconnecting slow client " + (s == null ? null : s.name));
+            conn.close();
+            return;
         }
+        resyncing = true;
+        s.room.execute(() -> { // one full snapshot replaces everything that was queued
+            try {
+                if (s.room.isSeated(s.name, this)) s.room.resync(this);
+            } finally {
+                resyncing = false;
+            }
+        });
+    }
+
+    // give up the seat in the current room (if any)
+    private void leaveRoom() {
+        Seat s = seat.getAndSet(null);
+        if (s != null) s.room.execute(() -> s.room.unregisterHandler(s.name, this));
     }
 
-    // send message to client thread safety
-    public synchronized void send(String raw) { 
-        out.println(raw);
-        out.println(); // terminator
-        out.flush(); // force send
+    // gives the admission slot back (once): joined, resumed, disconnected or timed out
+    private void endHandshake() {
+        if (!handshaking.compareAndSet(true, false)) return;
+        handshakeTimeout.cancel();
+        server.getAdmission().handshakeDone();
     }
 
-    private void cleanup() { // on disconnect
+    boolean isBot() {
+        return bot;
+    }
+
+    long getLastHeard() {
+        return lastHeard;
+    }
+
+    // silent for longer than the idle timeout: probably a half-open socket. Closing it makes the
+    // read loop / NIO transport run cleanup(), the same path as any other disconnect
+    void evict() {
+        Seat s = seat.get();
+        System.out.println("Evicting idle client " + (s != null && s.name != null ? s.name : "(not joined)"));
+        conn.close();
+    }
+
+    // the seat was resumed on another connection: drop this one (its cleanup finds the seat taken)
+    void close() {
+        conn.close();
+    }
+
+    // on disconnect (called by the read loop or by the NIO transport)
+    void cleanup() {
+        if (!running) return; // only once
         running = false;
-        try {
-            if (playerName != null) {
-                server.unregisterHandler(playerName);
-             }
-            sock.close(); // networking : SOCKET closed
-        } catch (IOException ignored) {}
+        if (!bot) server.connectionClosed(this);
+        endHandshake();
+        Seat s = seat.getAndSet(null);
+        if (s != null) s.room.execute(() -> s.room.disconnectHandler(s.name, this)); // seat kept for a while, the player may RESUME
+        conn.close();
     }
-}
\ No newline at end of file
+}
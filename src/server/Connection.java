@@ -0,0 +1,10 @@
+package server;
+
+// the transport side of one client, so ClientHandler's routing doesn't care how the bytes move
+interface Connection {
+    // queue one encoded message (may be shared with other connections); false if the client's outbound queue is full
+    boolean send(Frame frame);
+    void clearPending(); // drop everything not written yet
+    void useBinary(); // from now on, messages go out as BIN1 frames (input is detected per message)
+    void close();
+}
@@ -0,0 +1,138 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Dictionary class
+ * Word list for validating secrets and intended words, as a DAWG (minimal acyclic automaton: shared
+ * prefixes and shared suffixes are stored once) built offline by DictionaryBuilder.
+ * The file is memory-mapped read-only and queried in place: opening it reads the header only, the
+ * graph stays in the page cache instead of the heap, and lookups need no locking.
+ *
+ * File: magic, version, word count, node count, root offset, longest word (bytes), then the nodes.
+ * Node: u8 flags (1 = a word ends here), u16 edge count, i32 words below (this node included),
+ * then its edges sorted by label: u8 label (a UTF-8 byte), i32 offset of the target node.
+ * Words are stored lowercase.
+ */
+final class Dictionary {
+    static final int MAGIC = 0x44415747; // "DAWG"
+    static final int VERSION = 1;
+    static final int HEADER = 24;
+    static final int NODE_HEADER = 7;
+    static final int EDGE = 5;
+
+    private final ByteBuffer buf; // only absolute reads, so any number of threads can share it
+    private final int root;
+    private final int words;
+    private final int maxLength;
+
+    private Dictionary(ByteBuffer buf) {
+        this.buf = buf;
+        this.words = buf.getInt(8);
+        this.root = buf.getInt(16);
+        this.maxLength = buf.getInt(20);
+    }
+
+    static Dictionary open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()); // stays valid after close
+            if (map.limit() < HEADER || map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a dictionary file");
+            }
+            return new Dictionary(map);
+        }
+    }
+
+    // same thing from bytes in memory (DictionaryBuilder output before it's written)
+    static Dictionary of(byte[] data) {
+        return new Dictionary(ByteBuffer.wrap(data));
+    }
+
+    int size() { return words; }
+
+    boolean contains(String word) {
+        int node = find(word);
+        return node >= 0 && (buf.get(node) & 1) != 0;
+    }
+
+    // how many words start with `prefix` (the prefix itself included if it's a word)
+    int countWithPrefix(String prefix) {
+        int node = find(prefix);
+        return node < 0 ? 0 : buf.getInt(node + 3);
+    }
+
+    // the first `limit` words starting with `prefix`, in order
+    List<String> wordsWithPrefix(String prefix, int limit) {
+        byte[] p = normalize(prefix);
+        List<String> out = new ArrayList<>();
+        int node = find(p);
+        if (node < 0 || limit <= 0) return out;
+        collect(node, Arrays.copyOf(p, maxLength), p.length, limit, out); // no word is longer than maxLength
+        return out;
+    }
+
+    // depth first in label order, so the words come out sorted
+    private void collect(int node, byte[] word, int len, int limit, List<String> out) {
+        if ((buf.get(node) & 1) != 0) out.add(new String(word, 0, len, StandardCharsets.UTF_8));
+        int edges = buf.getShort(node + 1) & 0xFFFF;
+        for (int i = 0; i < edges && out.size() < limit; i++) {
+            int e = node + NODE_HEADER + i * EDGE;
+            word[len] = buf.get(e);
+            collect(buf.getInt(e + 1), word, len + 1, limit, out);
+        }
+    }
+
+    // same as find(normalize(s)) without the copies: ASCII is lowercased and walked char by char
+    private int find(String s) {
+        if (s == null) return root;
+        int from = 0, to = s.length();
+        while (from < to && s.charAt(from) <= ' ') from++; // trim()
+        while (to > from && s.charAt(to - 1) <= ' ') to--;
+        int node = root;
+        for (int i = from; i < to && node >= 0; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) return find(normalize(s)); // not ASCII: the general way
+            if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            node = child(node, (byte) c);
+        }
+        return node;
+    }
+
+    // node reached by `bytes` from the root, -1 if no word starts that way
+    private int find(byte[] bytes) {
+        int node = root;
+        for (byte b : bytes) {
+            node = child(node, b);
+            if (node < 0) return -1;
+        }
+        return node;
+    }
+
+    // binary search over the node's sorted edge labels
+    private int child(int node, byte label) {
+        int lo = 0, hi = (buf.getShort(node + 1) & 0xFFFF) - 1;
+        int want = label & 0xFF;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int e = node + NODE_HEADER + mid * EDGE;
+            int l = buf.get(e) & 0xFF;
+            if (l < want) lo = mid + 1;
+            else if (l > want) hi = mid - 1;
+            else return buf.getInt(e + 1);
+        }
+        return -1;
+    }
+
+    static byte[] normalize(String word) {
+        return word == null ? new byte[0] : word.trim().toLowerCase().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// builds the Dictionary file from a plain word list (one word per line), offline:
+//   java -cp ... server.DictionaryBuilder words.txt dictionary.dawg
+// Incremental construction from sorted input (Daciuk et al.): after each word, the part of the previous
+// word that isn't shared any more can't change again, so its nodes are replaced by an equal node already
+// built, or registered as new. The result is minimal without ever holding the whole trie.
+final class DictionaryBuilder {
+    // one node under construction: edges sorted by label (the input is sorted, so they're appended in order)
+    private static final class Node {
+        boolean fin;
+        byte[] labels = new byte[0];
+        Node[] targets = new Node[0];
+        int hash; // set once registered (its children are final by then)
+
+        Node last() { return targets[targets.length - 1]; }
+
+        void add(byte label, Node target) {
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            targets = Arrays.copyOf(targets, targets.length + 1);
+            labels[labels.length - 1] = label;
+            targets[targets.length - 1] = target;
+        }
+
+        // registered children are canonical, so comparing them by identity is enough
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Node n) || n.fin != fin || !Arrays.equals(n.labels, labels)) return false;
+            for (int i = 0; i < targets.length; i++) {
+                if (targets[i] != n.targets[i]) return false;
+            }
+            return true;
+        }
+
+        @Override public int hashCode() {
+            if (hash == 0) {
+                int h = (fin ? 1 : 0) * 31 + Arrays.hashCode(labels);
+                for (Node t : targets) h = h * 31 + System.identityHashCode(t);
+                hash = h == 0 ? 1 : h;
+            }
+            return hash;
+        }
+    }
+
+    private final Node root = new Node();
+    private final Map<Node, Node> register = new HashMap<>();
+    private final List<Node> path = new ArrayList<>(); // nodes along the previous word, path[0] = root
+    private byte[] previous = new byte[0];
+    private int words = 0, maxLength = 0;
+
+    private DictionaryBuilder() {
+        path.add(root);
+    }
+
+    // words in any order and case; returns the finished file
+    static byte[] build(List<String> input) {
+        List<byte[]> sorted = new ArrayList<>(input.size());
+        for (String w : input) {
+            byte[] b = Dictionary.normalize(w);
+            if (b.length > 0) sorted.add(b);
+        }
+        sorted.sort(Arrays::compareUnsigned);
+        DictionaryBuilder builder = new DictionaryBuilder();
+        for (byte[] w : sorted) builder.add(w);
+        return builder.finish();
+    }
+
+    private void add(byte[] word) {
+        if (Arrays.equals(word, previous)) return; // duplicate
+        int common = Arrays.mismatch(word, previous);
+        if (common < 0) common = word.length;
+        minimize(common);
+        Node node = path.get(common);
+        for (int i = common; i < word.length; i++) {
+            Node next = new Node();
+            node.add(word[i], next);
+            path.add(next);
+            node = next;
+        }
+        node.fin = true;
+        previous = word;
+        words++;
+        maxLength = Math.max(maxLength, word.length);
+    }
+
+    // the previous word's nodes below depth `depth` are final: swap each for its registered twin
+    private void minimize(int depth) {
+        for (int i = path.size() - 1; i > depth; i--) {
+            Node child = path.remove(i);
+            Node parent = path.get(i - 1);
+            Node twin = register.putIfAbsent(child, child);
+            if (twin != null) parent.targets[parent.targets.length - 1] = twin;
+        }
+    }
+
+    // lays the nodes out children first (so every offset is known when a parent is written), root last
+    private byte[] finish() {
+        minimize(0);
+        Map<Node, Integer> offsets = new IdentityHashMap<>();
+        Map<Node, Integer> counts = new IdentityHashMap<>();
+        List<Node> order = new ArrayList<>();
+        int size = Dictionary.HEADER;
+        // iterative post-order: a deep word list must not overflow the stack
+        List<Node> stack = new ArrayList<>(List.of(root));
+        List<Integer> next = new ArrayList<>(List.of(0));
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            Node n = stack.get(top);
+            int i = next.get(top);
+            if (i < n.targets.length) {
+                next.set(top, i + 1);
+                Node t = n.targets[i];
+                if (!offsets.containsKey(t)) {
+                    stack.add(t);
+                    next.add(0);
+                }
+                continue;
+            }
+            stack.remove(top);
+            next.remove(top);
+            int count = n.fin ? 1 : 0;
+            for (Node t : n.targets) count += counts.get(t);
+            counts.put(n, count);
+            offsets.put(n, size);
+            order.add(n);
+            size += Dictionary.NODE_HEADER + n.targets.length * Dictionary.EDGE;
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.putInt(Dictionary.MAGIC).putInt(Dictionary.VERSION).putInt(words).putInt(order.size())
+           .putInt(offsets.get(root)).putInt(maxLength);
+        for (Node n : order) {
+            out.put((byte) (n.fin ? 1 : 0)).putShort((short) n.targets.length).putInt(counts.get(n));
+            for (int i = 0; i < n.targets.length; i++) out.put(n.labels[i]).putInt(offsets.get(n.targets[i]));
+        }
+        return out.array();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("usage: DictionaryBuilder WORDS.txt OUT.dawg");
+            return;
+        }
+        long start = System.nanoTime();
+        List<String> input = new ArrayList<>();
+        try (BufferedReader r = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            for (String line; (line = r.readLine()) != null; ) {
+                String w = line.trim();
+                if (!w.isEmpty() && w.indexOf(' ') < 0) input.add(w);
+            }
+        }
+        byte[] data = build(input);
+        Path out = Paths.get(args[1]);
+        Path tmp = out.resolveSibling(out.getFileName() + ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, out, StandardCopyOption.REPLACE_EXISTING);
+        Dictionary d = Dictionary.of(data);
+        System.out.println(d.size() + " words, " + ByteBuffer.wrap(data).getInt(12) + " nodes, " + data.length + " bytes, in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+}
@@ -0,0 +1,58 @@
+package server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import protocol.BinaryCodec;
+import protocol.OutMessage;
+
+// one outgoing message encoded to bytes exactly once (terminator included).
+// A broadcast builds one Frame and hands the same bytes to every connection; they are never modified.
+// Connections that negotiated BIN1 use binary(), which is also encoded only once and only if someone needs it.
+// Both are made from the message's fields, so a BIN1 client gets values exactly as they are
+final class Frame {
+    private final OutMessage message;
+    private final String text;
+    private final byte[] bytes;
+    private volatile Frame binary; // lazily built BIN1 encoding
+
+    private Frame(OutMessage message, String text, byte[] bytes) {
+        this.message = message;
+        this.text = text;
+        this.bytes = bytes;
+    }
+
+    // text message + blank-line terminator
+    static Frame of(OutMessage message) {
+        String text = message.text();
+        return new Frame(message, text, (text + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // same message as a BIN1 frame (racing threads may both encode it, the result is the same)
+    Frame binary() {
+        Frame b = binary;
+        if (b == null) {
+            b = new Frame(message, text, BinaryCodec.encode(message));
+            binary = b;
+        }
+        return b;
+    }
+
+    int length() { return bytes.length; }
+
+    // the fields (in-process readers: BotDefender)
+    OutMessage message() { return message; }
+
+    // the message as text, without terminator (the log)
+    String text() { return text; }
+
+    // read-only view for channel writes (no copy, each connection gets its own position)
+    ByteBuffer buffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+}
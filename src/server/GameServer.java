@@ -1,321 +1,503 @@
 package server;
 
+import com.sun.net.httpserver.HttpServer;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import protocol.OutMessage;
 
 /**
  * GameServer class
  * Handles connection of players to the game server.
- * Manages player sessions and game state.
+ * Keeps the registry of rooms; each Room runs its own independent game.
  */
 
 class GameServer{
+    static final String DEFAULT_ROOM = "main"; // room used when JOIN has no ROOM field (old clients)
+    static final int EMPTY_ROOM_TTL_SECONDS = 60; // a created room nobody joins is dropped after this
+
     private final int port; // Port # for connections
-    private final Map<String, ClientHandler> handlers = new ConcurrentHashMap<>(); // Map for storing active clients via name
-    private final GameState gameState = new GameState(); // to be made in different branch
-    private final TimerManager timerManager; // being made in different branch
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>(); // room registry via room id
+    private final Map<String, Room> sessions = new ConcurrentHashMap<>(); // resume token -> room holding that seat
+    private final SecureRandom tokenRandom = new SecureRandom();
+    private AdmissionControl admission = new AdmissionControl(256, 500); // handshakes in flight, new connections per second
+    private final Set<ClientHandler> connections = ConcurrentHashMap.newKeySet(); // every open connection, for the idle sweep
+    private int heartbeatSeconds = 15; // PING a connection we haven't heard from for this long (0: never)
+    private int idleTimeoutSeconds = 45; // and drop it after this long (0: never)
+    private int resumeGraceSeconds = 30; // how long a dropped player's seat is kept for a RESUME (0: leave at once)
+    private final Metrics metrics = new Metrics(this::getRoomCount);
+    private final TimingWheel timers = new TimingWheel(100, 1024, metrics.timerLag); // shared by the TimerManager of every room (100ms ticks, ~100s per turn)
+    private final AtomicInteger roomCounter = new AtomicInteger(); // for generated room ids
+    private final boolean virtualThreads; // run client loops and timer callbacks on virtual threads
+    private final Executor timerCallbacks; // where expired server-level timers run (room timers go to the room)
+    private final Executor gameWorkers = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true); // drains the rooms' mailboxes (FIFO, daemon threads)
+    private Dictionary dictionary; // words allowed as secret / intended word, null: any word
+    private AssociationIndex botIndex; // what bot Defenders guess from, null: no ADD_BOT
+    private Path historyDir = Paths.get("history"); // old history entries of every room are spilled here
+    private final Executor writers; // drains the outbound queues of blocking socket connections
+    private final Executor snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private int outboundLimit = 256 * 1024; // bytes queued per client before the slow consumer policy kicks in
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.SNAPSHOT;
+    private volatile Journal journal; // null: nothing is journaled (benchmarks, --no-journal)
+    private Path journalDir; // the snapshot lives next to the journal
+    private int snapshotSeconds = 30; // 0: no periodic snapshots
+    private long snapshotLsn = -1; // journal position of the last snapshot (guarded by snapshotLock)
+    private final Object snapshotLock = new Object();
+    private final Object createLock = new Object(); // createRoom: id check, journal and put in one go
 
     public GameServer(int port){ //just sets port
+        this(port, false);
+    }
+
+    public GameServer(int port, boolean virtualThreads){
         this.port = port;
-        this.timerManager = new TimerManager(this, gameState);
+        this.virtualThreads = virtualThreads;
+        this.timerCallbacks = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()); // never on the wheel thread itself
+        this.writers = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : Executors.newCachedThreadPool(); // busy only while a client has output
+        rooms.put(DEFAULT_ROOM, new Room(DEFAULT_ROOM, this));
+        sampleMetrics();
+    }
+
+    // per second rates for STATS, every second for as long as the server runs
+    private void sampleMetrics(){
+        timers.schedule(() -> {
+            metrics.sample();
+            sampleMetrics();
+        }, 1, TimeUnit.SECONDS, timerCallbacks);
     }
 
     //main loop which runs for the entire code
+    // usage: GameServer [port] [--nio] [--io-threads=N] [--virtual] [--history-dir=DIR]
+    //                   [--outbound-limit=BYTES] [--slow-consumer=drop|snapshot|disconnect] [--metrics-port=N]
+    //                   [--journal-dir=DIR | --no-journal] [--journal-sync-ms=N] [--snapshot-interval=SECONDS]
+    //                   [--resume-grace=SECONDS] [--max-handshakes=N] [--accept-rate=PER_SECOND]
+    //                   [--heartbeat=SECONDS] [--idle-timeout=SECONDS] [--dictionary=FILE] [--bot-index=FILE]
     public static void main(String[] args) throws IOException{ //is the main function which does setup etc when server starts 
         int port = 5000; //default port
-        if (args != null && args.length > 0){
-            try{ port = Integer.parseInt(args[0]); } 
-            catch (NumberFormatException ignored){}
+        boolean nio = false; // thread per connection unless --nio
+        boolean virtual = false; // platform threads unless --virtual
+        int ioThreads = Runtime.getRuntime().availableProcessors();
+        String historyDir = null;
+        int outboundLimit = -1;
+        SlowConsumerPolicy policy = null;
+        int metricsPort = 0; // no HTTP endpoint unless asked for
+        String journalDir = "journal";
+        int journalSyncMs = 5;
+        int snapshotSeconds = -1;
+        int resumeGrace = -1;
+        int maxHandshakes = 256, acceptRate = 500; // 0: no limit
+        int heartbeat = -1, idleTimeout = -1;
+        String dictionary = null; // built by DictionaryBuilder
+        String botIndex = null; // word: associated words, one word per line
+        if (args != null){
+            for (String arg : args){
+                if (arg.equals("--nio")) nio = true;
+                else if (arg.equals("--virtual")) virtual = true;
+                else if (arg.startsWith("--history-dir=")) historyDir = arg.substring("--history-dir=".length());
+                else if (arg.startsWith("--journal-dir=")) journalDir = arg.substring("--journal-dir=".length());
+                else if (arg.startsWith("--dictionary=")) dictionary = arg.substring("--dictionary=".length());
+                else if (arg.startsWith("--bot-index=")) botIndex = arg.substring("--bot-index=".length());
+                else if (arg.equals("--no-journal")) journalDir = null;
+                else if (arg.startsWith("--max-handshakes=")){
+                    try{ maxHandshakes = Math.max(0, Integer.parseInt(arg.substring("--max-handshakes=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--accept-rate=")){
+                    try{ acceptRate = Math.max(0, Integer.parseInt(arg.substring("--accept-rate=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--heartbeat=")){
+                    try{ heartbeat = Math.max(0, Integer.parseInt(arg.substring("--heartbeat=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--idle-timeout=")){
+                    try{ idleTimeout = Math.max(0, Integer.parseInt(arg.substring("--idle-timeout=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--resume-grace=")){
+                    try{ resumeGrace = Math.max(0, Integer.parseInt(arg.substring("--resume-grace=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--snapshot-interval=")){
+                    try{ snapshotSeconds = Math.max(0, Integer.parseInt(arg.substring("--snapshot-interval=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--journal-sync-ms=")){
+                    try{ journalSyncMs = Math.max(1, Integer.parseInt(arg.substring("--journal-sync-ms=".length()))); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--slow-consumer=")){
+                    try{ policy = SlowConsumerPolicy.valueOf(arg.substring("--slow-consumer=".length()).toUpperCase()); }
+                    catch (IllegalArgumentException ignored){}
+                }
+                else if (arg.startsWith("--outbound-limit=")){
+                    try{ outboundLimit = Integer.parseInt(arg.substring("--outbound-limit=".length())); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--metrics-port=")){
+                    try{ metricsPort = Integer.parseInt(arg.substring("--metrics-port=".length())); }
+                    catch (NumberFormatException ignored){}
+                }
+                else if (arg.startsWith("--io-threads=")){
+                    try{ ioThreads = Integer.parseInt(arg.substring("--io-threads=".length())); }
+                    catch (NumberFormatException ignored){}
+                }
+                else{
+                    try{ port = Integer.parseInt(arg); } 
+                    catch (NumberFormatException ignored){}
+                }
+            }
+        }
+        GameServer server = new GameServer(port, virtual); // create server
+        if (historyDir != null) server.setHistoryDir(Paths.get(historyDir));
+        if (outboundLimit > 0) server.outboundLimit = outboundLimit;
+        if (policy != null) server.slowConsumerPolicy = policy;
+        if (snapshotSeconds >= 0) server.snapshotSeconds = snapshotSeconds;
+        if (resumeGrace >= 0) server.resumeGraceSeconds = resumeGrace;
+        server.admission = new AdmissionControl(maxHandshakes, acceptRate);
+        if (dictionary != null){
+            server.dictionary = Dictionary.open(Paths.get(dictionary)); // mapped, nothing is read yet
+            System.out.println("dictionary " + dictionary + ": " + server.dictionary.size() + " words");
+        }
+        if (botIndex != null){ // after the dictionary: bots only play words it accepts
+            long t0 = System.nanoTime();
+            server.botIndex = AssociationIndex.load(Paths.get(botIndex), server.dictionary);
+            System.out.println("bot index " + botIndex + ": " + server.botIndex.size() + " words in " + (System.nanoTime() - t0) / 1_000_000 + " ms");
         }
-        GameServer server = new GameServer(port); // create server
-        server.start(); // run server
+        if (heartbeat >= 0) server.heartbeatSeconds = heartbeat;
+        if (idleTimeout >= 0) server.idleTimeoutSeconds = idleTimeout;
+        server.startIdleSweep();
+        if (journalDir != null) server.openJournal(Paths.get(journalDir), journalSyncMs); // before any client
+        server.dropStaleHistory();
+        if (metricsPort > 0) server.startMetricsHttp(metricsPort);
+        if (nio) server.startNio(ioThreads);
+        else server.start(); // run server
     }
 
     public void start() throws IOException{ //starts the server afte setup
-        System.out.println("starting server on " + port);
+        System.out.println("starting server on " + port + (virtualThreads ? " (virtual threads)" : ""));
         try (ServerSocket ss = new ServerSocket(port)){
             //main loop for accepting clients
             while (true){
                 Socket sock = ss.accept();
+                if (!admit(sock)) continue; // no handler, no thread
                 System.out.println("Client connected: " + sock.getRemoteSocketAddress());
                 ClientHandler h = new ClientHandler(sock, this); //pass the game server as arguement
-                h.start(); //start the clients handler thread
+                if (virtualThreads) Thread.ofVirtual().name("client-" + sock.getPort()).start(h); // cheap thread per client
+                else new Thread(h, "client-" + sock.getPort()).start(); //start the clients handler thread
             }
         } finally{
-            timerManager.shutdown(); //end the timer
+            timers.stop(); //end the timers of all rooms
+        }
+    }
+
+    // same server but with the non-blocking transport (few I/O threads for all sockets)
+    public void startNio(int ioThreads) throws IOException{
+        System.out.println("starting server on " + port);
+        try{
+            new NioTransport(this, port, ioThreads).run();
+        } finally{
+            timers.stop();
         }
     }
 
+    // plain-text metrics on http://127.0.0.1:port/metrics (loopback only, for a local scraper)
+    public void startMetricsHttp(int metricsPort) throws IOException{
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), metricsPort), 0);
+        http.createContext("/metrics", ex -> {
+            byte[] body = (metrics.render() + "\n").getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()){
+                os.write(body);
+            }
+        });
+        http.start(); // its own dispatcher thread
+        System.out.println("metrics on http://127.0.0.1:" + metricsPort + "/metrics");
+    }
 
-    public void broadcast(String msg){ // function to send message to all connected clients (quite straightforward)
-        System.out.println("[Broadcast] " + msg.replace('\n', ' '));
-        for (ClientHandler h : handlers.values()) { 
-            h.send(msg);
+    // loads the last snapshot and replays the journal after it (rooms come back as they were, without players),
+    // then journals from here on
+    public void openJournal(Path dir, int syncMillis) throws IOException{
+        long start = System.nanoTime();
+        Files.createDirectories(dir);
+        long from = Snapshot.read(dir, this, rooms);
+        int[] events = {0};
+        Journal j = Journal.open(dir, syncMillis, from, e -> {
+            events[0]++;
+            replay(e);
+        });
+        for (Room room : rooms.values()){
+            room.rearmTimers();
+            if (!DEFAULT_ROOM.equals(room.getId())) scheduleEmptyCheck(room); // players get the usual time to come back
         }
+        journalDir = dir;
+        snapshotLsn = from;
+        journal = j;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            takeSnapshot(); // the next start has nothing to replay
+            j.close();
+        }, "journal-close"));
+        System.out.println("journal " + dir + ": " + (from > 0 ? "snapshot loaded, " : "no snapshot, ") + "replayed " + events[0]
+                + " events, " + rooms.size() + " rooms, in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        if (snapshotSeconds > 0) scheduleSnapshot();
     }
 
-    public void sendTo(String playerName, String msg){ // function to send message to specific client
-        ClientHandler h = handlers.get(playerName);
-        if (h != null) h.send(msg);
+    // on its own thread: each room encodes itself on its own executor between two commands, the file I/O blocks nobody
+    private void scheduleSnapshot(){
+        timers.schedule(() -> {
+            takeSnapshot();
+            scheduleSnapshot();
+        }, snapshotSeconds, TimeUnit.SECONDS, snapshotter);
     }
 
-    // Main and important function for giving the currennt game state to every client (Should be called after any gameState update)
-    public void broadcastState(){
-        StringBuilder sb = new StringBuilder(); // To communicate the state we serialize everything into a string and send it
-        sb.append("TYPE:STATE_UPDATE\n");
-        sb.append("PREFIX:").append(gameState.getPrefix()).append("\n");
-        sb.append("LIVES:").append(gameState.getLives()).append("\n");
-        sb.append("A:").append(gameState.getActivePlayer() == null ? "" : gameState.getActivePlayer()).append("\n");
-        sb.append("PLAYERS_START\n");
-        for (String p : handlers.keySet()) {
-            boolean r = gameState.isReady(p);
-            sb.append("PLAYER:").append(p).append(":READY:").append(r).append("\n");
+    // writes every room to the snapshot, then drops the journal segments it makes unnecessary
+    void takeSnapshot(){
+        Journal j = journal;
+        if (j == null) return;
+        synchronized (snapshotLock){
+            long lsn = j.position(); // events from here on may or may not be in a room's record, the room's own LSN tells
+            if (lsn == snapshotLsn) return; // nothing happened since the last one
+            long start = System.nanoTime();
+            try{
+                int n = Snapshot.write(journalDir, lsn, rooms.values(), j::sync);
+                j.truncateBefore(lsn);
+                snapshotLsn = lsn;
+                System.out.println("snapshot: " + n + " rooms in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            } catch (IOException e){
+                System.out.println("snapshot failed: " + e.getMessage());
+            }
         }
-        sb.append("PLAYERS_END\n");
-        sb.append("HISTORY_START\n");
-        for (String h : gameState.getHistory()) {
-            sb.append(h.replace("\n"," ")).append("\n");
+    }
+
+    private void replay(Journal.Event e){
+        switch (e.type){
+            case ROOM_CREATED -> rooms.putIfAbsent(e.room, new Room(e.room, this));
+            case ROOM_CLOSED -> {
+                Room room = rooms.remove(e.room);
+                if (room != null) room.closeIfEmpty();
+            }
+            // a room created just before the snapshot started can be missing from it while its
+            // ROOM_CREATED is not replayed any more: its events bring it back
+            default -> rooms.computeIfAbsent(e.room, id -> new Room(id, this)).replay(e);
         }
-        sb.append("HISTORY_END\n");
-        broadcast(sb.toString());
     }
 
-    // when client handler explicitly needs the gameState
-    public synchronized GameState getGameState() {
-        return gameState;
+    // returns the event's journal position, -1 if not journaling
+    long journal(Journal.Event e){
+        Journal j = journal;
+        return j == null ? -1 : j.append(e);
     }
 
+    // admission control at accept: true if the socket gets a handler. Otherwise the client is told
+    // RETRY_AFTER (in text, nothing was negotiated yet) and the socket is closed a bit later by the
+    // wheel, after the client has had time to read the message
+    boolean admit(Socket sock){
+        long wait = admission.admit();
+        if (wait == 0) return true;
+        metrics.rejected();
+        try{
+            sock.getOutputStream().write((OutMessage.of("RETRY_AFTER").put("MS", wait).put("MSG", "Server busy, retry later").text() + "\n\n").getBytes(StandardCharsets.UTF_8));
+            sock.shutdownOutput();
+        } catch (IOException ignored){}
+        timers.schedule(() -> {
+            try{ sock.close(); } catch (IOException ignored){}
+        }, 1, TimeUnit.SECONDS, Runnable::run);
+        return false;
+    }
 
-    // functions for registering and unregistering clients (to be called by client handler)
-    public synchronized void registerHandler(String playerName, ClientHandler handler){
-        handlers.put(playerName, handler);
-        gameState.setReady(playerName, false); // new player is not ready by default
-        broadcast("TYPE:PLAYER_JOINED\nNAME:" + playerName);
-        broadcastState();
+    // one periodic pass over all connections instead of a timer per socket: PING the quiet ones,
+    // close the ones silent for longer than the idle timeout (half-open sockets never error out on
+    // their own). Closing goes through the handler's usual cleanup, like any other disconnect
+    void startIdleSweep(){
+        int period = heartbeatSeconds > 0 ? heartbeatSeconds : idleTimeoutSeconds / 3;
+        if (period <= 0 && idleTimeoutSeconds <= 0) return;
+        sweepIdle(Math.max(1, period));
     }
 
-    public synchronized void unregisterHandler(String playerName){
-        handlers.remove(playerName);
-        gameState.removePlayer(playerName); // remove player from game state
-        broadcast("TYPE:PLAYER_LEFT\nNAME:" + playerName);
-        broadcastState();
+    private void sweepIdle(int periodSeconds){
+        timers.schedule(() -> {
+            long now = System.nanoTime();
+            long ping = TimeUnit.SECONDS.toNanos(heartbeatSeconds), idle = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+            for (ClientHandler h : connections){
+                long quiet = now - h.getLastHeard();
+                if (idleTimeoutSeconds > 0 && quiet >= idle) h.evict();
+                else if (heartbeatSeconds > 0 && quiet >= ping) h.send(OutMessage.of("PING"));
+            }
+            sweepIdle(periodSeconds);
+        }, periodSeconds, TimeUnit.SECONDS, timerCallbacks);
     }
 
-    // functions for starting game ish
+    void connectionOpened(ClientHandler h){
+        connections.add(h);
+        metrics.connected();
+    }
 
-    public synchronized void markReady(String playerName){
-        if (!handlers.containsKey(playerName)){
-            sendTo(playerName, "TYPE:ERROR\nMSG:Not connected");
-            return;
-        }
-        gameState.setReady(playerName,true);
-        broadcast("TYPE:PLAYER_READY\nNAME:" +playerName);
-        // Check all ready
-        if (handlers.size() >= 3){
-            boolean allReady = true;
-            for (String p : handlers.keySet()){ // check if all ready
-                if (!gameState.isReady(p)){allReady = false; break;}
-            }
-            if (allReady && gameState.getActivePlayer() == null){ // start game
-                // select A randomly
-                List<String> players = new ArrayList<>(handlers.keySet());
-                String a = players.get(new Random().nextInt(players.size()));
-                //game state updates
-                gameState.setActivePlayer(a);
-                gameState.addHistory("=== GAME STARTED ===");
-                gameState.addHistory("Role Assignment: Player " + a + " is DEFENDER (A)");
-                gameState.addHistory("All other players are COMMUNICATORS (B)");
-                gameState.addHistory("Waiting for A to set secret word...");
-                broadcast("TYPE:ROLES_ASSIGNED\nA:" + a);
-                // send updated game state to all clients
-                broadcastState();
-            } else {
-                broadcastState();
-            }
-        } else{
-            broadcast("TYPE:INFO\nMSG:Need at least 3 players ready to start");
-            broadcastState();
-        }
+    void connectionClosed(ClientHandler h){
+        connections.remove(h);
+        metrics.disconnected();
     }
-    
-    public synchronized void setSecret(String setterName, String secret){ // to be called by A to set the word
-        if (gameState.getActivePlayer() != null && !setterName.equals(gameState.getActivePlayer())){ //checks if the player u called is A
-            sendTo(setterName, "TYPE:ERROR\nMSG:Only A can set the secret");
-            return;
-        }
-        // Update game state
-        gameState.setSecret(secret);
-        gameState.setActivePlayer(setterName); // A
-        gameState.revealInitialPrefix();
-        gameState.resetLives();
-        gameState.addHistory("---");
-        gameState.addHistory("SECRET SET by A (" + setterName + ")");
-        gameState.addHistory("Initial Prefix: " + gameState.getPrefix() + " | Lives: " + gameState.getLives());
-        gameState.addHistory("B players can now START_HINT to communicate!");
-        // Broadcast updated state
-        broadcastState();
-    }
-
-    // functions for connections and hints
-
-    public synchronized void startHint(String hinter, String hint, String intendedW){
-        if (!gameState.isHintPhaseAllowed()){
-            sendTo(hinter, "TYPE:ERROR\nMSG:Hint not allowed in current phase");
-            return;
-        }
-        // prevent multiple hints at the same time
-        if (gameState.isHintActive()){
-            sendTo(hinter, "TYPE:ERROR\nMSG:Another hint is already active");
-            return;
-        }
-        // Validate intended word matches current prefix (case-insensitive)
-        String currPrefix = gameState.getPrefix();
-        String intendedLower = intendedW == null ? "" : intendedW.trim().toLowerCase();
-        if (currPrefix != null && !currPrefix.isEmpty()){
-            if (intendedLower.isEmpty() || !intendedLower.startsWith(currPrefix.toLowerCase())){
-                sendTo(hinter, "TYPE:ERROR\nMSG:Intended word must start with current prefix: " + currPrefix);
-                return;
-            }
-        }
-        gameState.setPendingHint(hinter, hint, intendedW);
-        gameState.addHistory("---");
-        gameState.addHistory("HINT STARTED by " + hinter);
-        gameState.addHistory("Public Hint: \"" + hint + "\"");
-        gameState.addHistory("(Intended word hidden from A - Timeout: 60s)"); //fixing 60 sec timer
-        broadcast("TYPE:HINT_STARTED\nGIVER:" + hinter + "\nHINT:" + hint + "\nTIME:60");
-        broadcastState();
 
-        timerManager.scheduleHintTimeout(hinter);
+    AdmissionControl getAdmission(){
+        return admission;
     }
 
-    public synchronized void requestConnect(String requester){
-        if (!gameState.isHintActive()){
-            sendTo(requester, "TYPE:ERROR\nMSG:No active hint");
-            return;
-        }
-        // Prevent the hint giver from requesting a connection
-        String hintGiver = gameState.getPendingHintGiver();
-        if (hintGiver != null && hintGiver.equals(requester)){
-            sendTo(requester, "TYPE:ERROR\nMSG:Hint giver cannot request a connection");
-            return;
-        }
-        if (gameState.isConnectionWindowOpen()){
-            sendTo(requester, "TYPE:ERROR\nMSG:Connection already in progress");
-            return;
-        }
-        // add to gamelogs
-        gameState.setConnectionRequester(requester); 
-        gameState.addHistory(">> CONNECTION ATTEMPT by " + requester);
-        gameState.addHistory("Connection Window: 10 seconds");
-        gameState.addHistory("Both A and " + requester + " must submit guesses!");
-        broadcast("TYPE:CONNECTION_WINDOW\nB2:" + requester + "\nTIME:10");
-        broadcastState();
-        // start timer for connection window
-        timerManager.scheduleConnectionWindow(requester);
-    }
-
-    public synchronized void submitGuess(String who, String guess){
-        // If a connection window is open, only allow A or the connection requester (B2) to submit guesses
-        if (gameState.isConnectionWindowOpen()){
-            String b2 = gameState.getConnectionRequester();
-            String aPlayer = gameState.getActivePlayer();
-            if (who == null || (!who.equals(b2) && !who.equals(aPlayer))){
-                sendTo(who, "TYPE:ERROR\nMSG:Not allowed to submit guess during connection window");
-                return;
-            }
-        }
+    Metrics getMetrics(){
+        return metrics;
+    }
 
-        // store guess (only allowed ones will reach here when connection window open)
-        gameState.putGuess(who, guess);
-        gameState.addHistory(who + " submitted guess (masked).");
-        broadcastState();
+    TimingWheel getTimers(){
+        return timers;
+    }
 
-        // if A and B2 has both guessed, check
-        if (gameState.isConnectionReadyToResolve()){
-            timerManager.cancelConnectionTimer();
-            resolveConnection();
-        }
+    Dictionary getDictionary(){
+        return dictionary;
+    }
+
+    AssociationIndex getBotIndex(){
+        return botIndex;
+    }
+
+    Executor getGameWorkers(){
+        return gameWorkers;
+    }
+
+    Executor getWriters(){
+        return writers;
+    }
+
+    int getOutboundLimit(){
+        return outboundLimit;
+    }
+
+    SlowConsumerPolicy getSlowConsumerPolicy(){
+        return slowConsumerPolicy;
+    }
+
+    int getResumeGraceSeconds(){
+        return resumeGraceSeconds;
+    }
+
+    // resume sessions: a token per seated player, handed out with JOINED and presented with RESUME
+
+    String newSession(Room room){
+        byte[] b = new byte[16];
+        tokenRandom.nextBytes(b);
+        String token = HexFormat.of().formatHex(b);
+        sessions.put(token, room);
+        return token;
+    }
+
+    Room roomForSession(String token){
+        return token == null ? null : sessions.get(token);
     }
 
-    public synchronized void resolveConnection(){
-        // Gather data
-        String intended = gameState.getPendingIntended();
-        String b2 = gameState.getConnectionRequester();
-        String aPlayer = gameState.getActivePlayer();
-        String b2Guess = gameState.getGuess(b2);
-        String aGuess = gameState.getGuess(aPlayer);
-        String secret = gameState.getSecret();
-
-        gameState.addHistory("RESOLVING CONNECTION...");
-
-        // check win condition
-        if ((intended != null && intended.equalsIgnoreCase(secret)) || (b2Guess != null && b2Guess.equalsIgnoreCase(secret))){
-            gameState.addHistory("=== GAME OVER ===");
-            gameState.addHistory("WINNER: B (Communicators)");
-            gameState.addHistory("Secret word guessed directly: " + secret);
-            broadcast("TYPE:GAME_OVER\nWINNER:B\nMSG:Secret guessed via connection attempt");
-            gameState.setGameOver(true);
-            clearHintAndConnection();
-            broadcastState();
-            return;
+    void endSession(String token){
+        if (token != null) sessions.remove(token);
+    }
+
+    // null: rooms keep only their in-memory history (benchmarks)
+    void setHistoryDir(Path dir){
+        historyDir = dir;
+        rooms.put(DEFAULT_ROOM, new Room(DEFAULT_ROOM, this)); // still empty (setup): the one from the constructor spills to the old dir
+    }
+
+    // spill file for a room's history, null if not spilling. The same for the same room id, so a restored
+    // room finds its old entries (room ids are user input: filename safe, and distinct ids never share a file)
+    Path historyFileFor(String roomId){
+        if (historyDir == null) return null;
+        StringBuilder safe = new StringBuilder();
+        for (char c : roomId.toCharArray()){
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-') safe.append(c);
+            else safe.append('_').append(String.format("%04x", (int) c));
         }
+        return historyDir.resolve(safe + ".log");
+    }
 
-        // A guesses intended Z        
-        if (aGuess != null && intended != null && aGuess.equalsIgnoreCase(intended)){
-            gameState.loseLife();
-            broadcast("TYPE:LIFE_LOST\nREMAINING:" + gameState.getLives());
-            gameState.addHistory("✗ A guessed intended word correctly!");
-            gameState.addHistory("PENALTY: Lost 1 life (Remaining: " + gameState.getLives() +")");
-            if (gameState.getLives() <= 0){
-                gameState.addHistory("=== GAME OVER ===");
-                gameState.addHistory("WINNER: A (Defender)");
-                gameState.addHistory("B team lost all lives on prefix: " + gameState.getPrefix());
-                broadcast("TYPE:GAME_OVER\nWINNER:A\nMSG:B lost all lives on same prefix");
-                gameState.setGameOver(true);
-                broadcastState();
-                return;
+    // spill files of rooms that didn't come back (not journaling, or closed while we were down)
+    void dropStaleHistory(){
+        if (historyDir == null || !Files.isDirectory(historyDir)) return;
+        Set<Path> live = new HashSet<>();
+        for (String id : rooms.keySet()) live.add(historyFileFor(id));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(historyDir, "*.log")){
+            for (Path f : files){
+                if (!live.contains(f)) Files.deleteIfExists(f);
             }
-            // continue with same prefix
-            gameState.addHistory("Game continues with same prefix: " + gameState.getPrefix());
-            clearHintAndConnection();
-            broadcastState();
-            return;
+        } catch (IOException e){
+            System.out.println("history cleanup failed: " + e.getMessage());
         }
+    }
+
+    // room registry
 
-        // A didn't guess intended.
-        // If b2 guessed intended -> reveal next letter
-        if (b2Guess != null && intended != null && b2Guess.equalsIgnoreCase(intended)){
-            gameState.revealNextLetter();
-            gameState.resetLives();
-            broadcast("TYPE:CONNECTION_SUCCESS\nNEW_PREFIX:" + gameState.getPrefix() + "\nLIVES:5");
-            gameState.addHistory("✓ CONNECTION SUCCESS!");
-            gameState.addHistory("" + b2 + " guessed the intended word correctly!");
-            gameState.addHistory("NEW PREFIX: " + gameState.getPrefix() + " | Lives reset to 5");
-            if (gameState.isSecretFullyRevealed()){
-                gameState.addHistory("=== GAME OVER ===");
-                gameState.addHistory("WINNER: B (Communicators)");
-                gameState.addHistory("Secret word fully revealed: " + gameState.getSecret());
-                broadcast("TYPE:GAME_OVER\nWINNER:B\nMSG:Secret fully revealed");
-                gameState.setGameOver(true);
+    // creates a new room, null if the id is already taken (generates an id when none given)
+    public Room createRoom(String id){
+        Room room;
+        synchronized (createLock){ // nothing else adds rooms once we're running, so a free id stays free until the put
+            String roomId;
+            if (id == null || id.trim().isEmpty()){
+                do {
+                    roomId = "room-" + roomCounter.incrementAndGet();
+                } while (rooms.containsKey(roomId));
+            } else {
+                roomId = id.trim();
+                if (rooms.containsKey(roomId)) return null;
             }
-            clearHintAndConnection();
-            broadcastState();
-            return;
+            room = new Room(roomId, this);
+            journalCreated(roomId);
+            rooms.put(roomId, room);
+        }
+        scheduleEmptyCheck(room);
+        return room;
+    }
+
+    // journaled before the room is visible, so none of its events can come first
+    private void journalCreated(String id){
+        journal(new Journal.Event(Journal.Type.ROOM_CREATED, System.currentTimeMillis(), id));
+    }
+
+    private void scheduleEmptyCheck(Room room){
+        timers.schedule(() -> onRoomEmpty(room), EMPTY_ROOM_TTL_SECONDS, TimeUnit.SECONDS, room::execute);
+    }
+
+    public Room getRoom(String id){
+        return rooms.get(id == null || id.trim().isEmpty() ? DEFAULT_ROOM : id.trim());
+    }
+
+    public int getRoomCount(){
+        return rooms.size();
+    }
+
+    // called by a room when its last player left (or by the TTL check), drops it if still empty.
+    // Runs on the room's executor
+    void onRoomEmpty(Room room){
+        if (DEFAULT_ROOM.equals(room.getId())) return; // the default room always stays
+        if (room.closeIfEmpty()){
+            journal(new Journal.Event(Journal.Type.ROOM_CLOSED, System.currentTimeMillis(), room.getId()));
+            rooms.remove(room.getId(), room);
+            System.out.println("Room closed: " + room.getId());
         }
-        // Otherwise, failed connection — reveal b1 intended and b2 guess to history, no life lost
-        gameState.addHistory("✗ CONNECTION FAILED");
-        gameState.addHistory("Intended: '" + (intended==null?"(none)":intended) + "' | " + b2 + " guessed: '" + (b2Guess==null?"(none)":b2Guess) + "'");
-        gameState.addHistory("No penalty. Game continues.");
-        clearHintAndConnection();
-        broadcast("TYPE:CONNECTION_FAILED\nMSG:Connection failed; no lives lost");
-        broadcastState();
-    }
-
-    private void clearHintAndConnection() {
-        gameState.clearPendingHint();
-        gameState.clearConnection();
     }
 }
@@ -1,5 +1,7 @@
 package server;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -10,6 +12,7 @@ import java.util.Map;
  * Is only changed via functions from Server so we dont get any race conditions due to race client(synchronized).
  *********/
 public class GameState {
+    static final int HISTORY_IN_MEMORY = 512; // history entries kept in memory per game
     private String secret = "";
     private String prefix = "";
     private int lives = 5;
@@ -27,7 +30,15 @@ public class GameState {
 
     private boolean endGame = false;
 
-    private final List<String> history = new ArrayList<>();
+    private final HistoryLog history; // recent entries in memory, older ones spilled to disk
+
+    public GameState(){ // history only in memory (old entries dropped)
+        this(new HistoryLog(HISTORY_IN_MEMORY, null));
+    }
+
+    GameState(HistoryLog history){
+        this.history = history;
+    }
 
     // getters + setters
     public String getSecret(){ return secret;}
@@ -97,8 +108,15 @@ public class GameState {
     public boolean isGameOver(){return endGame;}
     public void setGameOver(boolean v){endGame = v;}
 
+    // history is append-only: entry n has sequence number n
     public void addHistory(String s){history.add(s);}
-    public List<String> getHistory(){return new ArrayList<>(history);}
+    public long getLastHistorySeq(){return history.getLastSeq();}
+    // entries with afterSeq < seq <= toSeq that are still in memory
+    public List<String> getHistoryBetween(long afterSeq, long toSeq){return history.between(afterSeq, toSeq);}
+    public long getFirstInMemoryHistorySeq(){return history.getFirstInMemorySeq();}
+    // older entries (possibly from disk) for paging
+    public List<String> getHistoryPage(long beforeSeq, int limit) throws IOException {return history.page(beforeSeq, limit);}
+    public void closeHistory(){history.close();}
 
     // readiness management
     public void setReady(String player, boolean ready) {
@@ -107,4 +125,52 @@ public class GameState {
     public void removePlayer(String player){readiness.remove(player);}
     public boolean isReady(String player){return readiness.getOrDefault(player, false);}
     public Map<String, Boolean> getReadinessSnapshot(){return new HashMap<>(readiness);}
+
+    // snapshot record (see Snapshot): every field plus the in-memory history tail
+    void writeTo(DataOutputStream out) throws IOException {
+        Snapshot.writeString(out, secret);
+        Snapshot.writeString(out, prefix);
+        out.writeInt(lives);
+        Snapshot.writeString(out, activePlayer);
+        out.writeInt(readiness.size());
+        for (Map.Entry<String, Boolean> e : readiness.entrySet()){
+            Snapshot.writeString(out, e.getKey());
+            out.writeBoolean(e.getValue());
+        }
+        Snapshot.writeString(out, pHintGiver);
+        Snapshot.writeString(out, pHintPublic);
+        Snapshot.writeString(out, pIntended);
+        Snapshot.writeString(out, connectionRequester);
+        out.writeInt(connectionGuesses.size());
+        for (Map.Entry<String, String> e : connectionGuesses.entrySet()){
+            Snapshot.writeString(out, e.getKey());
+            Snapshot.writeString(out, e.getValue());
+        }
+        out.writeBoolean(endGame);
+        out.writeLong(history.getLastSeq());
+        List<String> tail = history.tail();
+        out.writeInt(tail.size());
+        for (String s : tail) Snapshot.writeString(out, s);
+    }
+
+    void readFrom(Snapshot.Reader in) {
+        secret = in.readString();
+        prefix = in.readString();
+        lives = in.readInt();
+        activePlayer = in.readString();
+        readiness.clear();
+        for (int i = in.readInt(); i > 0; i--) readiness.put(in.readString(), in.readBoolean());
+        pHintGiver = in.readString();
+        pHintPublic = in.readString();
+        pIntended = in.readString();
+        connectionRequester = in.readString();
+        connectionGuesses.clear();
+        for (int i = in.readInt(); i > 0; i--) connectionGuesses.put(in.readString(), in.readString());
+        endGame = in.readBoolean();
+        long lastSeq = in.readLong();
+        int n = in.readInt();
+        List<String> tail = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) tail.add(in.readString());
+        history.restore(lastSeq, tail);
+    }
 }
\ No newline at end of file
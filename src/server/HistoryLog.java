@@ -0,0 +1,202 @@
+package server;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HistoryLog class
+ * Append-only game history with sequence numbers (entry n has seq n, starting at 1).
+ * Only the last `capacity` entries stay in memory (ring); older ones are spilled to an
+ * append-only file (one per room, kept across restarts) and read back page by page when a client asks for them.
+ * Not thread safe, used on the room's executor like the rest of GameState.
+ */
+class HistoryLog {
+    private static final int INDEX_EVERY = 64; // one file offset remembered per 64 spilled entries
+
+    private final String[] ring;
+    private long lastSeq = 0; // seq of the newest entry
+    private long firstSeq = 1; // oldest entry still kept (in memory or spilled); later than 1 after a restore without the spill file
+    private final Path spillFile; // null: nothing is spilled, old entries are just dropped
+    private OutputStream spillOut = null; // opened on first spill (or by restore)
+    private long spillBytes = 0; // bytes written to spillFile so far
+    private long[] spillIndex = new long[16]; // offset of entries firstSeq, firstSeq + 64, ...
+    private int spillIndexSize = 0;
+
+    HistoryLog(int capacity, Path spillFile) {
+        this.ring = new String[Math.max(1, capacity)];
+        this.spillFile = spillFile;
+    }
+
+    void add(String entry) {
+        long seq = ++lastSeq;
+        int slot = (int) ((seq - 1) % ring.length);
+        if (seq > ring.length) spill(seq - ring.length, ring[slot]); // the slot holds the entry about to fall out of memory
+        ring[slot] = entry;
+    }
+
+    long getLastSeq() { return lastSeq; }
+
+    // oldest seq still in memory
+    long getFirstInMemorySeq() { return Math.max(firstSeq, lastSeq - ring.length + 1); }
+
+    // the in-memory entries, for a snapshot
+    List<String> tail() { return between(getFirstInMemorySeq() - 1, lastSeq); }
+
+    // back to the state a snapshot recorded: `tail` are the entries up to lastSeq. Older ones come from the
+    // spill file if it still has them all, otherwise they're gone
+    void restore(long lastSeq, List<String> tail) {
+        int n = Math.min(tail.size(), ring.length);
+        long before = lastSeq - n; // entries older than the tail
+        this.lastSeq = lastSeq;
+        this.firstSeq = before == Math.max(0, lastSeq - ring.length) && reopenSpill(before) ? 1 : before + 1;
+        for (int i = 0; i < n; i++) {
+            long seq = before + 1 + i;
+            ring[(int) ((seq - 1) % ring.length)] = tail.get(tail.size() - n + i);
+        }
+    }
+
+    // in-memory entries with afterSeq < seq <= toSeq (afterSeq is clamped to what's still in memory)
+    List<String> between(long afterSeq, long toSeq) {
+        long from = Math.max(afterSeq + 1, getFirstInMemorySeq());
+        List<String> out = new ArrayList<>((int) Math.max(0, toSeq - from + 1));
+        for (long seq = from; seq <= toSeq; seq++) out.add(ring[(int) ((seq - 1) % ring.length)]);
+        return out;
+    }
+
+    // up to `limit` entries just before beforeSeq, from memory or the spill file (oldest first)
+    List<String> page(long beforeSeq, int limit) throws IOException {
+        long to = Math.min(beforeSeq - 1, lastSeq);
+        long from = Math.max(firstSeq, to - limit + 1);
+        List<String> out = new ArrayList<>();
+        if (to < from) return out;
+        long firstInMemory = getFirstInMemorySeq();
+        if (from < firstInMemory) out.addAll(readSpilled(from, Math.min(to, firstInMemory - 1)));
+        if (to >= firstInMemory) out.addAll(between(Math.max(from, firstInMemory) - 1, to));
+        return out;
+    }
+
+    // drop the spill file (room closed)
+    void close() {
+        if (spillFile == null) return;
+        try {
+            if (spillOut != null) spillOut.close();
+            Files.deleteIfExists(spillFile);
+        } catch (IOException ignored) {}
+        spillOut = null;
+    }
+
+    // restore: keep the first `entries` lines of the spill file and append after them. What comes after was
+    // spilled after the snapshot, the journal replay spills it again (a torn last line goes too).
+    // False if the file has fewer lines, seq 1 and up can't be read back then
+    private boolean reopenSpill(long entries) {
+        if (spillFile == null) return false;
+        try {
+            if (entries == 0) {
+                Files.deleteIfExists(spillFile); // a previous run's: the first spill starts it over anyway
+                return true;
+            }
+            if (!Files.exists(spillFile)) return false;
+            long seq = 1, bytes = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(spillFile))) {
+                int b;
+                while (seq <= entries && (b = in.read()) >= 0) {
+                    if ((seq - 1) % INDEX_EVERY == 0 && (seq - 1) / INDEX_EVERY == spillIndexSize) {
+                        if (spillIndexSize == spillIndex.length) spillIndex = Arrays.copyOf(spillIndex, spillIndexSize * 2);
+                        spillIndex[spillIndexSize++] = bytes;
+                    }
+                    bytes++;
+                    if (b == '\n') seq++;
+                }
+            }
+            if (seq <= entries) { // the file ends early
+                spillIndexSize = 0;
+                return false;
+            }
+            try (FileChannel ch = FileChannel.open(spillFile, StandardOpenOption.WRITE)) {
+                ch.truncate(bytes);
+            }
+            spillOut = Files.newOutputStream(spillFile, StandardOpenOption.APPEND);
+            spillBytes = bytes;
+            return true;
+        } catch (IOException e) {
+            System.out.println("History spill file unusable: " + e.getMessage());
+            spillIndexSize = 0;
+            return false;
+        }
+    }
+
+    private void spill(long seq, String entry) {
+        if (spillFile == null) return;
+        try {
+            if (spillOut == null) {
+                Files.createDirectories(spillFile.getParent());
+                spillOut = Files.newOutputStream(spillFile); // unbuffered: what was spilled is in the file if we die
+            }
+            if ((seq - firstSeq) % INDEX_EVERY == 0) {
+                if (spillIndexSize == spillIndex.length) spillIndex = Arrays.copyOf(spillIndex, spillIndexSize * 2);
+                spillIndex[spillIndexSize++] = spillBytes;
+            }
+            byte[] line = (escape(entry) + "\n").getBytes(StandardCharsets.UTF_8);
+            spillOut.write(line);
+            spillBytes += line.length;
+        } catch (IOException e) {
+            System.out.println("History spill failed: " + e.getMessage());
+        }
+    }
+
+    private List<String> readSpilled(long from, long to) throws IOException {
+        List<String> out = new ArrayList<>();
+        if (spillOut == null) return out;
+        int idx = (int) ((from - firstSeq) / INDEX_EVERY);
+        long seq = (long) idx * INDEX_EVERY + firstSeq;
+        try (FileChannel ch = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            ch.position(spillIndex[idx]);
+            BufferedReader r = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+            String line;
+            while (seq <= to && (line = r.readLine()) != null) {
+                if (seq >= from) out.add(unescape(line));
+                seq++;
+            }
+        }
+        return out;
+    }
+
+    // one entry per line in the file, so its own line breaks (a BIN1 client can send them) are written as \n / \r
+    static String escape(String entry) {
+        if (entry.indexOf('\\') < 0 && entry.indexOf('\n') < 0 && entry.indexOf('\r') < 0) return entry;
+        StringBuilder sb = new StringBuilder(entry.length() + 8);
+        for (int i = 0; i < entry.length(); i++) {
+            char c = entry.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static String unescape(String line) {
+        if (line.indexOf('\\') < 0) return line;
+        StringBuilder sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                char n = line.charAt(++i);
+                sb.append(n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,336 @@
+package server;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Journal class
+ * Write-ahead log of every game state change (one compact event per accepted command), so a
+ * restarted server can rebuild its rooms by replaying it.
+ * Segments are memory-mapped files: an append is a copy into the mapping, which the kernel owns,
+ * so a crash of the server process loses nothing. A flusher thread forces the dirty range to disk
+ * every `syncMillis` (group commit: one fsync covers every append since the last one), which bounds
+ * what a machine crash can lose. Appends never wait for that fsync; they run on the room's mailbox task,
+ * so a room's events go in the order it applied them (append itself is synchronized across rooms).
+ *
+ * Record: int payload length, int crc32(payload), payload. A zero length is the end of the data
+ * (mapped files are zero-filled); a bad crc is a torn write and ends the replay.
+ * A record's position (LSN) is segment number << 32 | offset, so LSNs only grow. A snapshot
+ * remembers the LSN it starts from; the segments before it are deleted.
+ */
+class Journal {
+    static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int HEADER = 8;
+
+    enum Type {
+        ROOM_CREATED, // room
+        ROOM_CLOSED, // room
+        ROLES, // room, A
+        SECRET, // room, setter, secret
+        HINT, // room, giver, hint, intended
+        CONNECT, // room, requester
+        GUESS, // room, player, guess
+        RESOLVE, // room (connection window expired)
+        HINT_TIMEOUT; // room, giver
+
+        private static final Type[] VALUES = values();
+    }
+
+    // one journal entry; `time` is the wall clock when it was appended (timers are re-armed from it)
+    static final class Event {
+        final Type type;
+        final long time;
+        final String room;
+        final String[] args;
+        long lsn = -1; // where it was read from (replay only)
+
+        Event(Type type, long time, String room, String... args) {
+            this.type = type;
+            this.time = time;
+            this.room = room;
+            this.args = args;
+        }
+
+        String arg(int i) { return i < args.length ? args[i] : null; }
+    }
+
+    private final Path dir;
+    private final int syncMillis;
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(4096); // payload being encoded
+    private int segmentNo; // current segment
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int forced = 0; // bytes of the current segment already forced to disk
+    private final List<MappedByteBuffer> unforced = new ArrayList<>(); // full segments the flusher still has to force
+    private final Object flushLock = new Object(); // one force at a time, so sync() returns only once everything is on disk
+    private long appended = 0; // events since open
+    private boolean closed = false;
+
+    private Journal(Path dir, int syncMillis) {
+        this.dir = dir;
+        this.syncMillis = syncMillis;
+    }
+
+    // opens the journal in `dir`, hands every event from `fromLsn` on to `replay` (oldest first),
+    // then appends after the last good record
+    static Journal open(Path dir, int syncMillis, long fromLsn, Consumer<Event> replay) throws IOException {
+        Files.createDirectories(dir);
+        Journal j = new Journal(dir, syncMillis);
+        int fromSegment = Math.max(1, (int) (fromLsn >>> 32));
+        List<Path> segments = j.segments();
+        int last = 0, end = 0;
+        for (Path p : segments) {
+            int no = segmentNumber(p);
+            if (no < fromSegment) continue; // already in the snapshot
+            last = no;
+            end = j.read(p, no, no == fromSegment ? (int) fromLsn : 0, replay);
+        }
+        if (last == 0) {
+            j.map(fromSegment + (fromLsn > 0 ? 1 : 0), 0); // nothing to append to: a fresh segment past the snapshot
+        } else {
+            j.map(last, end);
+        }
+        Thread t = new Thread(j::flushLoop, "journal-flusher");
+        t.setDaemon(true);
+        t.start();
+        return j;
+    }
+
+    // returns the event's LSN (-1 once closed)
+    synchronized long append(Event e) {
+        if (closed) return -1;
+        ByteBuffer p = encode(e);
+        int len = p.remaining();
+        if (HEADER + len + HEADER > map.remaining()) roll(); // keep room for the zero terminator
+        if (HEADER + len + HEADER > map.remaining()) throw new IllegalStateException("journal event too large: " + len);
+        crc.reset();
+        crc.update(p.duplicate());
+        int start = map.position();
+        map.position(start + 4);
+        map.putInt((int) crc.getValue());
+        map.put(p);
+        map.putInt(map.position(), 0); // terminator, whatever a torn run left behind is cut off
+        map.putInt(start, len); // length last, a torn record reads as the end of the data
+        appended++;
+        return lsn(segmentNo, start);
+    }
+
+    synchronized long getAppended() { return appended; }
+
+    // LSN the next event will get
+    synchronized long position() { return lsn(segmentNo, map.position()); }
+
+    // everything appended so far is on disk when this returns
+    void sync() { flush(); }
+
+    // a snapshot covers everything before `lsn`: drop the segments that hold only older events
+    void truncateBefore(long lsn) {
+        int keep = (int) (lsn >>> 32);
+        try {
+            for (Path p : segments()) {
+                if (segmentNumber(p) < keep) Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            System.out.println("journal: truncate failed: " + e.getMessage());
+        }
+    }
+
+    private static long lsn(int segment, int offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    // force everything now and stop the flusher (shutdown)
+    void close() {
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            notifyAll();
+        }
+        flush();
+        try {
+            channel.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void flushLoop() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    wait(syncMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) return;
+            }
+            flush();
+        }
+    }
+
+    // one fsync for everything appended since the last one; the copy under the lock is cheap,
+    // force() itself runs outside it so appends go on meanwhile
+    private void flush() {
+        synchronized (flushLock) {
+            List<MappedByteBuffer> full;
+            MappedByteBuffer current;
+            int from, to;
+            synchronized (this) {
+                full = new ArrayList<>(unforced);
+                unforced.clear();
+                current = map;
+                from = forced;
+                to = map.position();
+                forced = to;
+            }
+            for (MappedByteBuffer m : full) m.force();
+            if (to > from) current.force(from, to - from);
+        }
+    }
+
+    // current segment is full: it goes to the flusher, the next one is mapped
+    private void roll() {
+        map.putInt(map.position(), 0);
+        unforced.add(map);
+        try {
+            channel.close(); // the mapping stays valid
+            map(segmentNo + 1, 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("cannot open journal segment", e);
+        }
+    }
+
+    private void map(int no, int position) throws IOException {
+        segmentNo = no;
+        channel = FileChannel.open(dir.resolve(String.format("journal-%08d.log", no)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        map.position(position);
+        forced = position;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> s = Files.list(dir)) {
+            return s.filter(p -> p.getFileName().toString().matches("journal-\\d{8}\\.log")).sorted().toList();
+        }
+    }
+
+    private static int segmentNumber(Path p) {
+        String n = p.getFileName().toString();
+        return Integer.parseInt(n.substring("journal-".length(), n.length() - ".log".length()));
+    }
+
+    // replays one segment from `offset`, returns where its good data ends
+    private int read(Path p, int no, int offset, Consumer<Event> replay) throws IOException {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            ByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(ch.size(), SEGMENT_SIZE));
+            b.position(Math.min(offset, b.limit()));
+            while (b.remaining() >= HEADER) {
+                int start = b.position();
+                int len = b.getInt();
+                if (len <= 0 || len > b.remaining() - 4) { b.position(start); break; }
+                int sum = b.getInt();
+                ByteBuffer payload = b.slice(b.position(), len);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != sum) {
+                    System.out.println("journal: torn record in " + p.getFileName() + " at " + start + ", ignoring the rest");
+                    b.position(start);
+                    break;
+                }
+                b.position(b.position() + len);
+                try {
+                    Event e = decode(payload);
+                    e.lsn = lsn(no, start);
+                    replay.accept(e);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    System.out.println("journal: bad event in " + p.getFileName() + " at " + start + ": " + e);
+                }
+            }
+            return b.position();
+        }
+    }
+
+    // type, varlong time, then the room and the args as varint length + UTF-8 (length 0 is null)
+    private ByteBuffer encode(Event e) {
+        scratch.clear();
+        put((byte) e.type.ordinal());
+        putVarlong(e.time);
+        putString(e.room);
+        put((byte) e.args.length);
+        for (String a : e.args) putString(a);
+        return scratch.flip();
+    }
+
+    private static Event decode(ByteBuffer b) {
+        int t = b.get();
+        if (t < 0 || t >= Type.VALUES.length) throw new IllegalArgumentException("unknown event type " + t);
+        long time = getVarlong(b);
+        String room = getString(b);
+        String[] args = new String[b.get() & 0xFF];
+        for (int i = 0; i < args.length; i++) args[i] = getString(b);
+        return new Event(Type.VALUES[t], time, room, args);
+    }
+
+    private void put(byte v) {
+        ensure(1);
+        scratch.put(v);
+    }
+
+    private void putVarlong(long v) {
+        while ((v & ~0x7FL) != 0) {
+            put((byte) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        put((byte) v);
+    }
+
+    private void putString(String s) {
+        if (s == null) {
+            putVarlong(0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        putVarlong(bytes.length + 1L);
+        ensure(bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void ensure(int n) {
+        if (scratch.remaining() >= n) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(scratch.capacity() * 2, scratch.position() + n));
+        scratch.flip();
+        bigger.put(scratch);
+        scratch = bigger;
+    }
+
+    private static long getVarlong(ByteBuffer b) {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte x = b.get();
+            v |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0) return v;
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static String getString(ByteBuffer b) {
+        long n = getVarlong(b);
+        if (n == 0) return null;
+        if (n - 1 > b.remaining()) throw new IllegalArgumentException("string past the end of the event");
+        byte[] bytes = new byte[(int) (n - 1)];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import protocol.BinaryCodec;
+
+// incremental decoder fed with whatever bytes arrived (NIO, and the blocking read loop).
+// Understands both the KEY:VALUE text format and BIN1 binary frames; a frame starts with BinaryCodec.MARKER.
+// Bytes go straight into one reusable Message, so the returned message is only valid until the next call.
+class LineDecoder {
+    static final int MAX_LINE = 64 * 1024; // a client sending longer lines (or frames) is dropped
+
+    private final Message current = new Message();
+    private boolean returned = false; // current was handed out, reset it before decoding more
+
+    // binary frame state: -1 when not inside a frame
+    private int binStage = -1; // 0: reading type, 1: reading length, 2: reading body
+    private int varint = 0, shift = 0;
+    private int binType = 0, binLen = 0, binRead = 0;
+
+    // returns the next complete message, or null if more bytes are needed
+    Message next(ByteBuffer buf) throws IOException {
+        if (returned) {
+            current.reset();
+            returned = false;
+        }
+        while (buf.hasRemaining()) {
+            byte b = buf.get();
+            if (binStage >= 0) {
+                if (binaryByte(b)) return done();
+                continue;
+            }
+            if (b == BinaryCodec.MARKER && current.isEmpty() && current.lineLength() == 0) { // binary frame instead of a text message
+                binStage = 0;
+                varint = 0;
+                shift = 0;
+                continue;
+            }
+            if (b != '\n') {
+                if (current.lineLength() >= MAX_LINE) throw new IOException("Line too long");
+                current.append(b);
+                continue;
+            }
+            // blank line terminates a message (a stray blank line before any content is skipped)
+            if (!current.endLine() && !current.isEmpty()) return done();
+        }
+        return null;
+    }
+
+    private Message done() {
+        returned = true;
+        return current;
+    }
+
+    // true when the frame is complete
+    private boolean binaryByte(byte b) throws IOException {
+        if (binStage == 2) {
+            current.append(b);
+            return ++binRead == binLen && finishFrame();
+        }
+        if (shift >= 32) throw new IOException("Varint too long");
+        varint |= (b & 0x7F) << shift;
+        shift += 7;
+        if ((b & 0x80) != 0) return false;
+        if (binStage == 0) {
+            binType = varint;
+            binStage = 1;
+        } else {
+            binLen = varint;
+            if (binLen < 0 || binLen > MAX_LINE) throw new IOException("Binary frame too large");
+            binStage = 2;
+            binRead = 0;
+            if (binLen == 0) return finishFrame();
+        }
+        varint = 0;
+        shift = 0;
+        return false;
+    }
+
+    private boolean finishFrame() throws IOException {
+        binStage = -1;
+        current.endFrame(binType, 0);
+        return true;
+    }
+}
@@ -0,0 +1,55 @@
+package server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// single-writer executor for one room: tasks (player commands, expired timers) go into a lock-free queue
+// and run one at a time, in order, on whatever worker of the shared pool picked the mailbox up.
+// So room code never runs on two threads at once and needs no lock, while all rooms share a few
+// worker threads. A busy room gives its worker back after BATCH tasks so the others get a turn.
+final class Mailbox implements Executor {
+    private static final int BATCH = 64;
+
+    // a task and when it was queued (queue wait metric)
+    private record Task(Runnable run, long queuedAt) {}
+
+    private final Queue<Task> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(); // on the pool, or draining right now
+    private final Executor workers;
+    private final Metrics.Histogram wait, run;
+
+    Mailbox(Executor workers, Metrics.Histogram wait, Metrics.Histogram run) {
+        this.workers = workers;
+        this.wait = wait;
+        this.run = run;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queue.add(new Task(task, System.nanoTime()));
+        if (scheduled.compareAndSet(false, true)) workers.execute(this::drain);
+    }
+
+    private void drain() {
+        try {
+            for (int i = 0; i < BATCH; i++) {
+                Task t = queue.poll();
+                if (t == null) break;
+                long start = System.nanoTime();
+                wait.record(start - t.queuedAt());
+                try {
+                    t.run().run();
+                } catch (RuntimeException e) { // one bad command must not stop the room
+                    System.out.println("room task failed: " + e);
+                }
+                run.record(System.nanoTime() - start);
+            }
+        } finally { // an Error gets through to the worker, but the room still has to run its next task
+            scheduled.set(false);
+            // a task queued after the last poll saw `scheduled` still set: pick it up (unless someone else just did)
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) workers.execute(this::drain);
+        }
+    }
+}
@@ -1,38 +1,203 @@
 package server;
-import java.io.BufferedReader; 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.*; 
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import protocol.BinaryCodec;
 
-// to parse key:value messages
+// to parse key:value messages.
+// The decoders fill one Message per connection in place: the raw bytes stay in `buf`, each known key
+// only remembers where its value is, and a value becomes a String the first time somebody get()s it.
+// So a decoded message is only valid until the decoder is asked for the next one.
 public class Message {
-    private final Map<String, String> map = new HashMap<>(); 
-    public void put(String k, String v) 
-    { map.put(k, v); 
+    static final int MAX_SIZE = 256 * 1024; // bytes kept for one message
+
+    private byte[] buf = new byte[256];
+    private int len = 0;
+    private int lineStart = 0; // start of the line being received (text)
+    private boolean any = false; // true once a non-empty line was seen
+    private MessageType type = null; // resolved lazily when TYPE arrived as text
+    private final int[] valStart = new int[MessageField.COUNT]; // -1: field not present
+    private final int[] valEnd = new int[MessageField.COUNT];
+    private final String[] values = new String[MessageField.COUNT]; // materialized values
+    private Map<String, String> extra = null; // put() with keys we have no field for
+
+    public Message() {
+        Arrays.fill(valStart, -1);
+    }
+
+    public void put(String k, String v) {
+        MessageField f = MessageField.of(k);
+        if (f == null) {
+            if (extra == null) extra = new HashMap<>();
+            extra.put(k, v);
+            return;
+        }
+        values[f.ordinal()] = v;
+        valStart[f.ordinal()] = -1;
+        if (f == MessageField.TYPE) type = null;
+    }
+
+    public String get(String k) {
+        MessageField f = MessageField.of(k);
+        if (f != null) return get(f);
+        return extra == null ? null : extra.get(k);
+    }
+
+    public String get(MessageField f) {
+        int i = f.ordinal();
+        String v = values[i];
+        if (v == null && valStart[i] >= 0) {
+            v = new String(buf, valStart[i], valEnd[i] - valStart[i], StandardCharsets.UTF_8);
+            values[i] = v;
+        }
+        return v;
+    }
+
+    // TYPE as an enum, null if the message has no TYPE
+    public MessageType getType() {
+        if (type == null) {
+            int i = MessageField.TYPE.ordinal();
+            if (values[i] != null) type = MessageType.of(values[i]);
+            else if (valStart[i] >= 0) type = MessageType.of(buf, valStart[i], valEnd[i]);
+        }
+        return type;
+    }
+
+    // parse one KEY:VALUE line (readFrom, and anything that already has the line as a String)
+    void putLine(String line) {
+        byte[] b = line.getBytes(StandardCharsets.UTF_8);
+        try {
+            for (byte x : b) append(x);
+        } catch (IOException e) {
+            len = lineStart; // oversized, ignore like an irrelevant line
+            return;
+        }
+        endLine();
+    }
+
+    // --- used by LineDecoder ---
+
+    // forget the previous message, keep the buffers
+    void reset() {
+        len = 0;
+        lineStart = 0;
+        any = false;
+        type = null;
+        Arrays.fill(valStart, -1);
+        Arrays.fill(values, null);
+        extra = null;
     }
-    public String get(String k) { 
-        return map.get(k); 
+
+    boolean isEmpty() { return !any; }
+
+    void append(byte b) throws IOException {
+        if (len == buf.length) {
+            if (len >= MAX_SIZE) throw new IOException("Message too large");
+            buf = Arrays.copyOf(buf, Math.min(len * 2, MAX_SIZE));
+        }
+        buf[len++] = b;
+    }
+
+    int lineLength() { return len - lineStart; }
+
+    // the current text line is complete (without its '\n'). Returns false for a blank line.
+    boolean endLine() {
+        int start = lineStart, end = len;
+        while (start < end && (buf[start] & 0xFF) <= ' ') start++; // same as String.trim
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') end--;
+        if (start == end) {
+            len = lineStart; // nothing worth keeping
+            return false;
+        }
+        any = true;
+        if (field(start, end)) lineStart = len;
+        else len = lineStart; // not a key we read, reuse the bytes
+        return true;
+    }
+
+    // buf[start..end) is a non-blank trimmed KEY:VALUE line; false if it's not stored
+    private boolean field(int start, int end) {
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            if (buf[i] == ':') { colon = i; break; }
+        }
+        if (colon <= start) return false; // irrelevant line
+        int ke = colon;
+        while (ke > start && (buf[ke - 1] & 0xFF) <= ' ') ke--;
+        MessageField f = MessageField.of(buf, start, ke);
+        if (f == null) return false;
+        int vs = colon + 1;
+        while (vs < end && (buf[vs] & 0xFF) <= ' ') vs++;
+        set(f, vs, end);
+        return true;
+    }
+
+    private void set(MessageField f, int start, int end) {
+        int i = f.ordinal();
+        valStart[i] = start;
+        valEnd[i] = end;
+        values[i] = null;
+        if (f == MessageField.TYPE) type = null;
+    }
+
+    // buf[start..len) holds the body of a BIN1 frame of the given type code
+    void endFrame(int typeCode, int start) throws IOException {
+        any = true;
+        if (typeCode != 0) {
+            type = MessageType.ofCode(typeCode);
+            int i = MessageField.TYPE.ordinal();
+            valStart[i] = -1;
+            values[i] = BinaryCodec.typeName(typeCode); // constant, no copy
+        }
+        int end = len;
+        int pos = start;
+        while (pos < end) {
+            int tag = 0, n = 0;
+            for (int shift = 0; ; shift += 7) { // varint tag
+                if (pos >= end || shift >= 32) throw new IOException("Bad binary field");
+                int b = buf[pos++] & 0xFF;
+                tag |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            for (int shift = 0; ; shift += 7) { // varint length
+                if (pos >= end || shift >= 32) throw new IOException("Bad binary field");
+                int b = buf[pos++] & 0xFF;
+                n |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            if (n < 0 || n > end - pos) throw new IOException("Bad binary field");
+            int vs = pos, ve = pos + n;
+            pos = ve;
+            if (tag == 0) { // whole line as is
+                int s = vs, e = ve;
+                while (s < e && (buf[s] & 0xFF) <= ' ') s++;
+                while (e > s && (buf[e - 1] & 0xFF) <= ' ') e--;
+                if (s < e) field(s, e);
+                continue;
+            }
+            MessageField f = MessageField.ofTag(tag);
+            if (f == null) continue; // a key we don't read, or an unknown tag from a newer peer
+            while (vs < ve && (buf[vs] & 0xFF) <= ' ') vs++;
+            while (ve > vs && (buf[ve - 1] & 0xFF) <= ' ') ve--;
+            set(f, vs, ve);
+        }
     }
 
     // to read one message from stream
     public static Message readFrom(BufferedReader in) throws IOException {
         Message m = new Message();
         String cur_line;
-        boolean any = false; // becomes true if we read any non-empty line
         while ((cur_line = in.readLine()) != null) {
             if (cur_line.trim().isEmpty()) {
-                if (!any){
+                if (m.isEmpty()){
                     return null;
                 }
                 break;
             }
-            any = true; 
-            int idx = cur_line.indexOf(':');
-            if (idx <= 0) continue; // irrelevant line
-            String k = cur_line.substring(0, idx).trim(); // key
-            String v = cur_line.substring(idx+1).trim(); // value
-            m.put(k, v); 
+            m.putLine(cur_line);
         }
-        if (!any) return null;
-        return m; // the message map
+        if (m.isEmpty()) return null;
+        return m; // the message
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,44 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import protocol.BinaryCodec;
+
+// keys the server reads from client messages. Lines with other keys are skipped while decoding.
+public enum MessageField {
+    TYPE, NAME, ROOM, SECRET, HINT, INTENDED, GUESS, BEFORE, LIMIT, PROTO, TOKEN, SEQ, SENT;
+
+    static final int COUNT = values().length;
+    private static final MessageField[] ALL = values();
+    private static final MessageField[] BY_TAG = new MessageField[64]; // BIN1 key tag -> field
+    static {
+        for (MessageField f : ALL) {
+            int tag = BinaryCodec.keyTag(f.name());
+            if (tag > 0 && tag < BY_TAG.length) BY_TAG[tag] = f;
+        }
+    }
+
+    private final byte[] ascii;
+
+    MessageField() {
+        this.ascii = name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // buf[start..end) is the trimmed key, null if we don't care about it
+    static MessageField of(byte[] buf, int start, int end) {
+        for (MessageField f : ALL) {
+            if (MessageType.matches(f.ascii, buf, start, end)) return f;
+        }
+        return null;
+    }
+
+    static MessageField of(String key) {
+        for (MessageField f : ALL) {
+            if (f.name().equals(key)) return f;
+        }
+        return null;
+    }
+
+    static MessageField ofTag(int tag) {
+        return tag > 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+    }
+}
@@ -0,0 +1,53 @@
+package server;
+
+import java.nio.charset.StandardCharsets;
+import protocol.BinaryCodec;
+
+// TYPE values a client can send; resolved straight from the received bytes (no String per message)
+public enum MessageType {
+    CREATE_ROOM, JOIN, LEAVE_ROOM, SET_SECRET, READY, START_HINT, CONNECT, SUBMIT_GUESS,
+    RESYNC, HISTORY_PAGE, PING, STATS, RESUME, PONG, ADD_BOT,
+    UNKNOWN; // anything else (the raw value is still available through Message.get)
+
+    private static final MessageType[] KNOWN = values();
+    private static final MessageType[] BY_CODE = new MessageType[64]; // BIN1 type code -> type
+    static {
+        for (int code = 1; code < BY_CODE.length; code++) {
+            String name = BinaryCodec.typeName(code);
+            if (name != null) BY_CODE[code] = of(name);
+        }
+    }
+
+    private final byte[] ascii;
+
+    MessageType() {
+        this.ascii = name().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // buf[start..end) is the trimmed TYPE value
+    static MessageType of(byte[] buf, int start, int end) {
+        for (MessageType t : KNOWN) {
+            if (t != UNKNOWN && matches(t.ascii, buf, start, end)) return t;
+        }
+        return UNKNOWN;
+    }
+
+    static MessageType of(String s) {
+        for (MessageType t : KNOWN) {
+            if (t != UNKNOWN && t.name().equals(s)) return t;
+        }
+        return UNKNOWN;
+    }
+
+    static MessageType ofCode(int code) {
+        return code > 0 && code < BY_CODE.length ? BY_CODE[code] : UNKNOWN;
+    }
+
+    static boolean matches(byte[] name, byte[] buf, int start, int end) {
+        if (end - start != name.length) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (buf[start + i] != name[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,128 @@
+package server;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics class
+ * Counters and latency histograms for the whole server, cheap enough to update on every message.
+ * render() gives plain text in the Prometheus exposition format; it is the body of a STATS reply
+ * and of GET /metrics on the --metrics-port endpoint.
+ */
+class Metrics {
+    private static final MessageType[] TYPES = MessageType.values();
+
+    // log2 buckets: bucket i counts values up to 2^i microseconds (last one is everything bigger)
+    static final class Histogram {
+        private static final int BUCKETS = 26; // up to ~33 s
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sumNanos = new LongAdder();
+        private final LongAdder count = new LongAdder();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            long micros = (nanos + 999) / 1000;
+            int idx = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+            buckets.incrementAndGet(Math.min(idx, BUCKETS - 1));
+            sumNanos.add(nanos);
+            count.increment();
+        }
+
+        long count() { return count.sum(); }
+
+        void render(StringBuilder sb, String name, String labels) {
+            String sep = labels.isEmpty() ? "" : ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKETS - 1; i++) {
+                cumulative += buckets.get(i);
+                sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"")
+                  .append(BigDecimal.valueOf(1L << i, 6).stripTrailingZeros().toPlainString()).append("\"} ").append(cumulative).append('\n');
+            }
+            cumulative += buckets.get(BUCKETS - 1);
+            sb.append(name).append("_bucket{").append(labels).append(sep).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+            String braces = labels.isEmpty() ? "" : "{" + labels + "}";
+            sb.append(name).append("_sum").append(braces).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+            sb.append(name).append("_count").append(braces).append(' ').append(count.sum()).append('\n');
+        }
+    }
+
+    private final LongAdder[] inbound = new LongAdder[TYPES.length]; // messages received per TYPE
+    private final long[] lastSample = new long[TYPES.length]; // totals at the previous sample (sampler thread only)
+    private volatile long[] perSecond = new long[TYPES.length]; // messages of each TYPE in the last second
+    private final Histogram[] handler = new Histogram[TYPES.length]; // handleMessage duration per TYPE
+    final Histogram queueWait = new Histogram(); // a room task waiting in the room's mailbox
+    final Histogram taskRun = new Histogram(); // running it
+    final Histogram fanOut = new Histogram(); // one broadcast to every player of a room
+    final Histogram timerLag = new Histogram(); // timer expiry running later than its deadline
+    private final LongAdder broadcasts = new LongAdder();
+    private final LongAdder broadcastBytes = new LongAdder(); // bytes queued, all recipients together
+    private final AtomicInteger connections = new AtomicInteger(); // connected sockets
+    private final LongAdder rejected = new LongAdder(); // connections turned away by admission control
+    private final IntSupplier rooms;
+
+    Metrics(IntSupplier rooms) {
+        this.rooms = rooms;
+        for (int i = 0; i < TYPES.length; i++) {
+            inbound[i] = new LongAdder();
+            handler[i] = new Histogram();
+        }
+    }
+
+    void handled(MessageType type, long nanos) {
+        inbound[type.ordinal()].increment();
+        handler[type.ordinal()].record(nanos);
+    }
+
+    void broadcast(int recipients, int frameBytes, long nanos) {
+        broadcasts.increment();
+        broadcastBytes.add((long) recipients * frameBytes);
+        fanOut.record(nanos);
+    }
+
+    void connected() { connections.incrementAndGet(); }
+
+    void disconnected() { connections.decrementAndGet(); }
+
+    void rejected() { rejected.increment(); }
+
+    // called once a second, turns the totals into a per second rate
+    void sample() {
+        long[] rate = new long[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            long total = inbound[i].sum();
+            rate[i] = total - lastSample[i];
+            lastSample[i] = total;
+        }
+        perSecond = rate;
+    }
+
+    String render() {
+        StringBuilder sb = new StringBuilder(16 * 1024);
+        sb.append("connections ").append(connections.get()).append('\n');
+        sb.append("rooms ").append(rooms.getAsInt()).append('\n');
+        sb.append("connections_rejected_total ").append(rejected.sum()).append('\n');
+        long[] rate = perSecond;
+        for (int i = 0; i < TYPES.length; i++) {
+            long total = inbound[i].sum();
+            if (total == 0) continue;
+            String label = "type=\"" + TYPES[i].name() + "\"";
+            sb.append("inbound_messages_total{").append(label).append("} ").append(total).append('\n');
+            sb.append("inbound_messages_per_second{").append(label).append("} ").append(rate[i]).append('\n');
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            if (handler[i].count() == 0) continue;
+            handler[i].render(sb, "handler_seconds", "type=\"" + TYPES[i].name() + "\"");
+        }
+        queueWait.render(sb, "room_queue_wait_seconds", "");
+        taskRun.render(sb, "room_task_seconds", "");
+        sb.append("broadcasts_total ").append(broadcasts.sum()).append('\n');
+        sb.append("broadcast_bytes_total ").append(broadcastBytes.sum()).append('\n');
+        fanOut.render(sb, "broadcast_fanout_seconds", "");
+        timerLag.render(sb, "timer_lag_seconds", "");
+        sb.setLength(sb.length() - 1); // no trailing newline, a blank line would end a STATS message
+        return sb.toString();
+    }
+}
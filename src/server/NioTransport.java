@@ -0,0 +1,213 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NioTransport class
+ * Non-blocking alternative to one thread per ClientHandler.
+ * One acceptor thread hands new sockets round-robin to a small pool of I/O threads,
+ * each running its own Selector. Same blank-line terminated KEY:VALUE wire format.
+ */
+class NioTransport {
+    private final GameServer server;
+    private final int port;
+    private final IoLoop[] loops;
+    private final AtomicInteger next = new AtomicInteger(); // round-robin over the loops
+
+    NioTransport(GameServer server, int port, int ioThreads) throws IOException {
+        this.server = server;
+        this.port = port;
+        this.loops = new IoLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < loops.length; i++) loops[i] = new IoLoop(i);
+    }
+
+    // blocks the calling thread accepting connections (like the old accept loop)
+    void run() throws IOException {
+        for (IoLoop loop : loops) loop.thread.start();
+        try (ServerSocketChannel ssc = ServerSocketChannel.open()) {
+            ssc.bind(new InetSocketAddress(port));
+            System.out.println("NIO transport with " + loops.length + " I/O threads");
+            while (true) {
+                SocketChannel ch = ssc.accept(); // blocking accept, the channel itself goes non-blocking
+                if (!server.admit(ch.socket())) continue; // refused before it costs a registration
+                System.out.println("Client connected: " + ch.getRemoteAddress());
+                ch.configureBlocking(false);
+                ch.socket().setTcpNoDelay(true);
+                loops[Math.floorMod(next.getAndIncrement(), loops.length)].register(ch);
+            }
+        } finally {
+            for (IoLoop loop : loops) loop.thread.interrupt();
+        }
+    }
+
+    // one selector + thread, owns all the connections registered to it
+    private final class IoLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> pendingRegister = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> pendingWrite = new ConcurrentLinkedQueue<>(); // connections with new output
+        private final ByteBuffer readBuf = ByteBuffer.allocateDirect(16 * 1024); // shared by all connections of this loop
+
+        IoLoop(int idx) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-io-" + idx);
+            this.thread.setDaemon(true);
+        }
+
+        void register(SocketChannel ch) {
+            pendingRegister.add(ch);
+            selector.wakeup();
+        }
+
+        // called from any thread when a connection got output queued
+        void requestWrite(NioConnection c) {
+            pendingWrite.add(c);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    selector.select();
+                    SocketChannel ch;
+                    while ((ch = pendingRegister.poll()) != null) accept(ch);
+                    NioConnection c;
+                    while ((c = pendingWrite.poll()) != null) c.flush();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        NioConnection conn = (NioConnection) key.attachment();
+                        if (!key.isValid()) { conn.closeNow(); continue; }
+                        if (key.isReadable()) conn.read(readBuf);
+                        if (key.isValid() && key.isWritable()) conn.flush();
+                    }
+                } catch (IOException e) {
+                    System.out.println("I/O loop error: " + e.getMessage());
+                }
+            }
+        }
+
+        private void accept(SocketChannel ch) {
+            try {
+                NioConnection conn = new NioConnection(ch, this);
+                conn.key = ch.register(selector, SelectionKey.OP_READ, conn);
+                conn.handler = new ClientHandler(conn, server);
+            } catch (IOException e) {
+                try { ch.close(); } catch (IOException ignored) {}
+            }
+        }
+    }
+
+    // one client on an I/O loop. Reads/flushes happen on the loop thread; send() may come from any thread.
+    private final class NioConnection implements Connection {
+        private final SocketChannel ch;
+        private final IoLoop loop;
+        private SelectionKey key;
+        private ClientHandler handler;
+        private final OutboundQueue queue = new OutboundQueue(server.getOutboundLimit());
+        private ByteBuffer[] inFlight = null; // batch the socket didn't fully take yet (loop thread only)
+        private final AtomicBoolean writeRequested = new AtomicBoolean(false); // avoid a wakeup per message
+        private final LineDecoder decoder = new LineDecoder();
+        private volatile boolean closed = false;
+        private volatile boolean binary = false; // BIN1 negotiated
+
+        NioConnection(SocketChannel ch, IoLoop loop) {
+            this.ch = ch;
+            this.loop = loop;
+        }
+
+        @Override
+        public boolean send(Frame frame) {
+            if (closed) return true;
+            if (!queue.offer(binary ? frame.binary() : frame)) return false;
+            if (writeRequested.compareAndSet(false, true)) loop.requestWrite(this);
+            return true;
+        }
+
+        @Override
+        public void useBinary() {
+            binary = true;
+        }
+
+        @Override
+        public void clearPending() {
+            queue.clear();
+        }
+
+        // close from any thread: let the loop do the actual cleanup
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            loop.requestWrite(this); // flush() sees closed and shuts down, after what the socket still takes
+        }
+
+        void read(ByteBuffer buf) {
+            try {
+                while (true) {
+                    buf.clear();
+                    int n = ch.read(buf);
+                    if (n < 0) { closeNow(); return; }
+                    if (n == 0) return;
+                    buf.flip();
+                    Message msg;
+                    while ((msg = decoder.next(buf)) != null) {
+                        handler.handleMessage(msg); // same routing as the blocking handler
+                        if (closed) return;
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Connection error: " + e.getMessage());
+                closeNow();
+            }
+        }
+
+        // write everything queued with gathering writes (many messages, one syscall)
+        void flush() {
+            writeRequested.set(false);
+            if (!ch.isOpen()) return;
+            try {
+                while (true) {
+                    if (inFlight == null) {
+                        Frame[] batch = queue.pollAll();
+                        if (batch.length == 0) break;
+                        inFlight = new ByteBuffer[batch.length];
+                        for (int i = 0; i < batch.length; i++) inFlight[i] = batch[i].buffer(); // views, the bytes are shared
+                    }
+                    ch.write(inFlight);
+                    if (inFlight[inFlight.length - 1].hasRemaining()) { // socket full, wait for OP_WRITE
+                        if (closed) { closeNow(); return; } // a peer that stopped reading would keep us waiting forever: drop the rest
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    inFlight = null;
+                }
+                if (closed) { closeNow(); return; }
+                if (key.isValid()) key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                closeNow();
+            }
+        }
+
+        // loop thread only
+        void closeNow() {
+            closed = true;
+            if (key != null) key.cancel();
+            try { ch.close(); } catch (IOException ignored) {}
+            queue.clear();
+            inFlight = null;
+            if (handler != null) handler.cleanup();
+        }
+    }
+}
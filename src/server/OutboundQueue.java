@@ -0,0 +1,65 @@
+package server;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.ReentrantLock;
+
+// bounded queue of encoded messages (Frames, possibly shared with other clients) waiting to be written to one client.
+// Producers (room broadcasts) never block on the socket; the writer side drains everything queued at once.
+class OutboundQueue {
+    private static final Frame[] NONE = new Frame[0];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Frame> items = new ArrayDeque<>();
+    private final int limitBytes;
+    private int bytes = 0;
+
+    OutboundQueue(int limitBytes) {
+        this.limitBytes = limitBytes;
+    }
+
+    // false if the message doesn't fit (client fell behind), the message is then not queued
+    boolean offer(Frame f) {
+        lock.lock();
+        try {
+            if (bytes + f.length() > limitBytes && !items.isEmpty()) return false;
+            items.add(f);
+            bytes += f.length();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // everything queued so far, in order (so it can be written with a single flush)
+    Frame[] pollAll() {
+        lock.lock();
+        try {
+            if (items.isEmpty()) return NONE;
+            Frame[] all = items.toArray(NONE);
+            items.clear();
+            bytes = 0;
+            return all;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        lock.lock();
+        try {
+            return items.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            items.clear();
+            bytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,689 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import protocol.OutMessage;
+
+/**
+ * Room class
+ * One independent game hosted by the GameServer.
+ * Owns its own players, GameState and timers. Everything in here runs on the room's Mailbox
+ * (player commands, expired timers, snapshots), one task at a time, so there are no locks and
+ * a busy game never blocks the others; all rooms share the server's worker pool.
+ * The methods below assume they are on that executor: submit them with execute().
+ */
+
+class Room{
+    static final int SNAPSHOT_HISTORY = 100; // history entries in a full snapshot, older ones via HISTORY_PAGE
+    static final int MAX_HISTORY_PAGE = 200;
+
+    private final String id; // room name used by JOIN / CREATE_ROOM
+    private final GameServer server;
+    private final Map<String, ClientHandler> handlers = new ConcurrentHashMap<>(); // Map for storing the clients of this room via name
+    private final Map<String, String> tokens = new HashMap<>(); // player -> resume token
+    private final Map<String, TimingWheel.Timeout> away = new HashMap<>(); // dropped players whose seat is kept until the timeout
+    private final GameState gameState;
+    private final TimerManager timerManager;
+    private final Mailbox mailbox; // the only executor that touches this room's state
+    private boolean closed = false; // set once the registry dropped this room
+    private boolean replaying = false; // applying journal events after a restart: no timers, no output
+    private long replayTime; // wall clock of the event being replayed
+    private long hintDeadline, connectionDeadline; // wall clock, so timers can be re-armed after a restart
+    private long lastLsn = -1; // journal position of this room's last event (a snapshot contains up to here)
+    private String bot; // seat of the BotDefender added with ADD_BOT (null: none)
+
+    // what the last STATE_UPDATE told the clients, so the next one only carries the difference
+    private int stateVersion = 0;
+    private String sentPrefix = "";
+    private int sentLives = 5;
+    private String sentA = "";
+    private Map<String, Boolean> sentPlayers = new LinkedHashMap<>();
+    private long sentHistorySeq = 0; // last history entry already sent
+
+    public Room(String id, GameServer server){
+        this.id = id;
+        this.server = server;
+        this.mailbox = new Mailbox(server.getGameWorkers(), server.getMetrics().queueWait, server.getMetrics().taskRun);
+        this.gameState = new GameState(new HistoryLog(GameState.HISTORY_IN_MEMORY, server.historyFileFor(id)));
+        this.timerManager = new TimerManager(this, gameState, server.getTimers());
+    }
+
+    public String getId(){ return id; }
+
+    // queue a task for this room (any thread); tasks run in order, never two at once
+    void execute(Runnable task){
+        mailbox.execute(task);
+    }
+
+    // same, for a result (the snapshot thread)
+    <T> CompletableFuture<T> call(Supplier<T> task){
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailbox.execute(() -> {
+            try{
+                result.complete(task.get());
+            } catch (RuntimeException e){
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    // the room's execution context for expired timers: the wheel thread only queues them
+    void runTimer(Runnable task){
+        mailbox.execute(task);
+    }
+
+    public void broadcast(OutMessage msg){ // function to send message to all connected clients (quite straightforward)
+        broadcast(msg, null);
+    }
+
+    private void broadcast(OutMessage msg, ClientHandler skip){
+        long start = System.nanoTime();
+        Frame frame = Frame.of(msg); // encoded once for everybody
+        if (!replaying) System.out.println("[" + id + "] [Broadcast] " + frame.text().replace('\n', ' '));
+        int sent = 0;
+        for (ClientHandler h : handlers.values()) { 
+            if (h != skip){ h.send(frame); sent++; }
+        }
+        server.getMetrics().broadcast(sent, frame.length(), System.nanoTime() - start);
+    }
+
+    public void sendTo(String playerName, OutMessage msg){ // function to send message to specific client
+        ClientHandler h = handlers.get(playerName);
+        if (h != null) h.send(msg);
+    }
+
+    // Main and important function for giving the currennt game state to every client (Should be called after any gameState update)
+    // Only what changed since the last broadcast is sent (VERSION / BASE); clients that are not on BASE ask for a RESYNC
+    public void broadcastState(){
+        broadcastState(null);
+    }
+
+    // same, but skip one handler (a joiner gets the full snapshot instead)
+    private void broadcastState(ClientHandler skip){
+        Map<String, Boolean> players = currentPlayers();
+        String a = gameState.getActivePlayer() == null ? "" : gameState.getActivePlayer();
+        boolean prefixChanged = !gameState.getPrefix().equals(sentPrefix);
+        boolean livesChanged = gameState.getLives() != sentLives;
+        boolean aChanged = !a.equals(sentA);
+        boolean playersChanged = !players.equals(sentPlayers);
+        boolean historyChanged = gameState.getLastHistorySeq() != sentHistorySeq;
+        if (!prefixChanged && !livesChanged && !aChanged && !playersChanged && !historyChanged) return; // nothing new, nothing to send
+
+        int base = stateVersion++;
+        OutMessage m = OutMessage.of("STATE_UPDATE").put("VERSION", stateVersion).put("BASE", base);
+        if (prefixChanged) m.put("PREFIX", gameState.getPrefix());
+        if (livesChanged) m.put("LIVES", gameState.getLives());
+        if (aChanged) m.put("A", a);
+        if (playersChanged){ // only the players that joined / changed readiness / left
+            m.line("PLAYERS_START");
+            for (Map.Entry<String, Boolean> e : players.entrySet()){
+                if (!e.getValue().equals(sentPlayers.get(e.getKey()))){
+                    m.line("PLAYER:" + e.getKey() + ":READY:" + e.getValue());
+                }
+            }
+            for (String p : sentPlayers.keySet()){
+                if (!players.containsKey(p)) m.line("REMOVED:" + p);
+            }
+            m.line("PLAYERS_END");
+        }
+        if (historyChanged) appendHistory(m, sentHistorySeq, gameState.getLastHistorySeq()); // only new entries
+
+        sentPrefix = gameState.getPrefix();
+        sentLives = gameState.getLives();
+        sentA = a;
+        sentPlayers = players;
+        sentHistorySeq = gameState.getLastHistorySeq();
+        broadcast(m, skip);
+    }
+
+    // full snapshot of the last broadcast version (on join or when a client asks to RESYNC)
+    private void sendFullState(ClientHandler h){
+        OutMessage m = OutMessage.of("STATE_UPDATE");
+        m.put("VERSION", stateVersion);
+        m.put("FULL", true);
+        m.put("PREFIX", sentPrefix);
+        m.put("LIVES", sentLives);
+        m.put("A", sentA);
+        m.line("PLAYERS_START");
+        for (Map.Entry<String, Boolean> e : sentPlayers.entrySet()){
+            m.line("PLAYER:" + e.getKey() + ":READY:" + e.getValue());
+        }
+        m.line("PLAYERS_END");
+        appendHistory(m, Math.max(0, sentHistorySeq - SNAPSHOT_HISTORY), sentHistorySeq);
+        h.send(m);
+    }
+
+    // after a RESUME: the last broadcast version with every field and player, but only the history entries
+    // after lastSeq. If those are not all in memory any more it's a full snapshot instead
+    private void sendCatchUp(ClientHandler h, long lastSeq){
+        if (lastSeq > sentHistorySeq || lastSeq < gameState.getFirstInMemoryHistorySeq() - 1){
+            sendFullState(h);
+            return;
+        }
+        OutMessage m = OutMessage.of("STATE_UPDATE");
+        m.put("VERSION", stateVersion);
+        m.put("CATCHUP", true);
+        m.put("PREFIX", sentPrefix);
+        m.put("LIVES", sentLives);
+        m.put("A", sentA);
+        m.line("PLAYERS_START");
+        for (Map.Entry<String, Boolean> e : sentPlayers.entrySet()){
+            m.line("PLAYER:" + e.getKey() + ":READY:" + e.getValue());
+        }
+        m.line("PLAYERS_END");
+        appendHistory(m, lastSeq, sentHistorySeq);
+        h.send(m);
+    }
+
+    // history section, every entry as SEQ:text (only what is still in memory)
+    private void appendHistory(OutMessage m, long afterSeq, long toSeq){
+        m.line("HISTORY_START");
+        long seq = Math.max(afterSeq, gameState.getFirstInMemoryHistorySeq() - 1);
+        for (String line : gameState.getHistoryBetween(afterSeq, toSeq)){
+            m.line(++seq + ":" + line); // as it is: BIN1 keeps line breaks, text flattens them
+        }
+        m.line("HISTORY_END");
+    }
+
+    // older history on demand: up to `limit` entries before `beforeSeq` (may come from the spill file)
+    public void sendHistoryPage(ClientHandler h, long beforeSeq, int limit){
+        try{
+            int n = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+            long before = Math.min(beforeSeq, sentHistorySeq + 1);
+            List<String> page = gameState.getHistoryPage(before, n);
+            long seq = Math.max(0, Math.min(before - 1, gameState.getLastHistorySeq()) - page.size());
+            OutMessage m = OutMessage.of("HISTORY_PAGE").line("HISTORY_START");
+            for (String line : page){
+                m.line(++seq + ":" + line);
+            }
+            m.line("HISTORY_END");
+            h.send(m);
+        } catch (IOException e){
+            h.send(OutMessage.of("ERROR").put("MSG", "History not available"));
+        }
+    }
+
+    // client noticed a gap in versions (or just wants everything again)
+    public void resync(ClientHandler h){
+        sendFullState(h);
+    }
+
+    // seated players, including the ones away within their grace period (their seat is still theirs)
+    private Map<String, Boolean> currentPlayers(){
+        Map<String, Boolean> players = new LinkedHashMap<>();
+        for (String p : handlers.keySet()) players.put(p, gameState.isReady(p));
+        for (String p : away.keySet()) players.put(p, gameState.isReady(p));
+        return players;
+    }
+
+    // when client handler explicitly needs the gameState
+    public GameState getGameState() {
+        return gameState;
+    }
+
+
+    // does this connection hold the player's seat (it may have been replaced, or never granted)
+    boolean isSeated(String playerName, ClientHandler handler){
+        return playerName != null && handlers.get(playerName) == handler;
+    }
+
+    public int getPlayerCount(){
+        return handlers.size();
+    }
+
+    // functions for registering and unregistering clients (to be called by client handler)
+    // returns the player's resume token, null if the room was already closed, so the caller can report it
+    public String registerHandler(String playerName, ClientHandler handler){
+        if (closed) return null;
+        TimingWheel.Timeout held = away.remove(playerName); // a plain JOIN takes a held seat over as a new player
+        if (held != null) held.cancel();
+        server.endSession(tokens.get(playerName));
+        String token = server.newSession(this);
+        tokens.put(playerName, token);
+        handlers.put(playerName, handler);
+        gameState.setReady(playerName, false); // new player is not ready by default
+        broadcast(OutMessage.of("PLAYER_JOINED").put("NAME", playerName));
+        broadcastState(handler); // others get the delta...
+        sendFullState(handler); // ...the new player starts from a full snapshot
+        return token;
+    }
+
+    // only removes the player if the seat still belongs to this handler (a rejoin may have replaced it)
+    public void unregisterHandler(String playerName, ClientHandler handler){
+        if (playerName == null || !handlers.remove(playerName, handler)) return;
+        leave(playerName);
+    }
+
+    // the connection dropped: keep the seat (role, readiness) for the grace period so the player can RESUME
+    public void disconnectHandler(String playerName, ClientHandler handler){
+        int grace = server.getResumeGraceSeconds();
+        if (grace <= 0){
+            unregisterHandler(playerName, handler);
+            return;
+        }
+        if (playerName == null || !handlers.remove(playerName, handler)) return;
+        away.put(playerName, server.getTimers().schedule(() -> {
+            if (away.remove(playerName) != null) leave(playerName); // never came back
+        }, grace, TimeUnit.SECONDS, this::runTimer));
+    }
+
+    // back on a new connection: the seat is handed over and only what was missed is sent.
+    // Returns the player's name, null if the token is unknown here or its grace period is over
+    public String resume(String token, long lastSeq, ClientHandler handler){
+        String name = null;
+        for (Map.Entry<String, String> e : tokens.entrySet()){
+            if (e.getValue().equals(token)){ name = e.getKey(); break; }
+        }
+        if (name == null || closed) return null;
+        TimingWheel.Timeout held = away.remove(name);
+        if (held != null) held.cancel();
+        ClientHandler old = handlers.put(name, handler);
+        if (old != null && old != handler) old.close(); // the old socket isn't known to be dead yet
+        handler.send(OutMessage.of("RESUMED").put("NAME", name).put("ROOM", id).put("TOKEN", token));
+        sendCatchUp(handler, lastSeq);
+        return name;
+    }
+
+    // the player's seat is given up for good
+    private void leave(String playerName){
+        if (playerName.equals(bot)) bot = null;
+        server.endSession(tokens.remove(playerName));
+        gameState.removePlayer(playerName); // remove player from game state
+        broadcast(OutMessage.of("PLAYER_LEFT").put("NAME", playerName));
+        broadcastState();
+        if (away.isEmpty() && !handlers.isEmpty() && onlyBots()){ // nobody left to play with: the bots go too, one by one
+            Map.Entry<String, ClientHandler> remaining = handlers.entrySet().iterator().next();
+            unregisterHandler(remaining.getKey(), remaining.getValue()); // ends up back here, until the room is empty
+            remaining.getValue().close();
+            return;
+        }
+        if (handlers.isEmpty() && away.isEmpty()) server.onRoomEmpty(this);
+    }
+
+    private boolean onlyBots(){
+        for (ClientHandler h : handlers.values()){
+            if (!h.isBot()) return false;
+        }
+        return true;
+    }
+
+    // ADD_BOT: a BotDefender joins (through the mailbox, like any JOIN) and will be A once everyone is ready
+    public void addBot(ClientHandler requester){
+        if (server.getBotIndex() == null){
+            requester.send(OutMessage.of("ERROR").put("MSG", "No bot on this server (start it with --bot-index)"));
+            return;
+        }
+        if (gameState.getActivePlayer() != null){
+            requester.send(OutMessage.of("ERROR").put("MSG", "Game already started"));
+            return;
+        }
+        if (bot != null){ // its JOIN may still be queued
+            requester.send(OutMessage.of("ERROR").put("MSG", "Room already has a bot"));
+            return;
+        }
+        String name = "bot";
+        for (int i = 2; handlers.containsKey(name) || away.containsKey(name); i++) name = "bot" + i; // never take a player's seat
+        bot = name;
+        BotDefender.join(server, id, name);
+    }
+
+    // called by the registry (on this room's executor) when the room is dropped
+    boolean closeIfEmpty(){
+        if (!handlers.isEmpty() || !away.isEmpty()) return false;
+        closed = true;
+        for (String token : tokens.values()) server.endSession(token);
+        tokens.clear();
+        timerManager.shutdown();
+        gameState.closeHistory();
+        return true;
+    }
+
+    // functions for starting game ish
+
+    public void markReady(String playerName){
+        if (!handlers.containsKey(playerName)){
+            sendTo(playerName, OutMessage.of("ERROR").put("MSG", "Not connected"));
+            return;
+        }
+        gameState.setReady(playerName,true);
+        broadcast(OutMessage.of("PLAYER_READY").put("NAME", playerName));
+        // Check all ready
+        if (handlers.size() >= 3){
+            boolean allReady = true;
+            for (String p : handlers.keySet()){ // check if all ready
+                if (!gameState.isReady(p)){allReady = false; break;}
+            }
+            if (allReady && gameState.getActivePlayer() == null){ // start game
+                // a bot is here to defend, so it's A; otherwise select A randomly
+                List<String> players = new ArrayList<>(handlers.keySet());
+                startGame(bot != null && handlers.containsKey(bot) ? bot : players.get(new Random().nextInt(players.size())));
+            } else {
+                broadcastState();
+            }
+        } else{
+            broadcast(OutMessage.of("INFO").put("MSG", "Need at least 3 players ready to start"));
+            broadcastState();
+        }
+    }
+    
+    // the random pick is journaled, a replay must come to the same A
+    private void startGame(String a){
+        record(Journal.Type.ROLES, a);
+        //game state updates
+        gameState.setActivePlayer(a);
+        gameState.addHistory("=== GAME STARTED ===");
+        gameState.addHistory("Role Assignment: Player " + a + " is DEFENDER (A)");
+        gameState.addHistory("All other players are COMMUNICATORS (B)");
+        gameState.addHistory("Waiting for A to set secret word...");
+        broadcast(OutMessage.of("ROLES_ASSIGNED").put("A", a));
+        // send updated game state to all clients
+        broadcastState();
+    }
+
+    public void setSecret(String setterName, String secret){ // to be called by A to set the word
+        if (gameState.getActivePlayer() != null && !setterName.equals(gameState.getActivePlayer())){ //checks if the player u called is A
+            sendTo(setterName, OutMessage.of("ERROR").put("MSG", "Only A can set the secret"));
+            return;
+        }
+        if (!replaying && !isWord(secret)){ // replay trusts what was accepted back then
+            sendTo(setterName, OutMessage.of("ERROR").put("MSG", "Secret is not in the dictionary"));
+            return;
+        }
+        record(Journal.Type.SECRET, setterName, secret);
+        // Update game state
+        gameState.setSecret(secret);
+        gameState.setActivePlayer(setterName); // A
+        gameState.revealInitialPrefix();
+        gameState.resetLives();
+        gameState.addHistory("---");
+        gameState.addHistory("SECRET SET by A (" + setterName + ")");
+        gameState.addHistory("Initial Prefix: " + gameState.getPrefix() + " | Lives: " + gameState.getLives());
+        gameState.addHistory("B players can now START_HINT to communicate!");
+        // Broadcast updated state
+        broadcastState();
+    }
+
+    // functions for connections and hints
+
+    public void startHint(String hinter, String hint, String intendedW){
+        if (!gameState.isHintPhaseAllowed()){
+            sendTo(hinter, OutMessage.of("ERROR").put("MSG", "Hint not allowed in current phase"));
+            return;
+        }
+        // prevent multiple hints at the same time
+        if (gameState.isHintActive()){
+            sendTo(hinter, OutMessage.of("ERROR").put("MSG", "Another hint is already active"));
+            return;
+        }
+        // Validate intended word matches current prefix (case-insensitive)
+        String currPrefix = gameState.getPrefix();
+        String intendedLower = intendedW == null ? "" : intendedW.trim().toLowerCase();
+        if (currPrefix != null && !currPrefix.isEmpty()){
+            if (intendedLower.isEmpty() || !intendedLower.startsWith(currPrefix.toLowerCase())){
+                sendTo(hinter, OutMessage.of("ERROR").put("MSG", "Intended word must start with current prefix: " + currPrefix));
+                return;
+            }
+        }
+        if (!replaying && !isWord(intendedLower)){
+            sendTo(hinter, OutMessage.of("ERROR").put("MSG", "Intended word is not in the dictionary"));
+            return;
+        }
+        record(Journal.Type.HINT, hinter, hint, intendedW);
+        gameState.setPendingHint(hinter, hint, intendedW);
+        gameState.addHistory("---");
+        gameState.addHistory("HINT STARTED by " + hinter);
+        gameState.addHistory("Public Hint: \"" + hint + "\"");
+        gameState.addHistory("(Intended word hidden from A - Timeout: 60s)"); //fixing 60 sec timer
+        // the timer first, so DEADLINE is when it's really due (it can't fire before this task is done).
+        // TIME for older clients, DEADLINE (server clock) so a client can take off what the message spent on the way
+        hintDeadline = replaying ? now() + TimerManager.HINT_SECONDS * 1000L : timerManager.scheduleHintTimeout(hinter);
+        broadcast(OutMessage.of("HINT_STARTED").put("GIVER", hinter).put("HINT", hint).put("TIME", TimerManager.HINT_SECONDS).put("DEADLINE", hintDeadline));
+        broadcastState();
+    }
+
+    public void requestConnect(String requester){
+        if (!gameState.isHintActive()){
+            sendTo(requester, OutMessage.of("ERROR").put("MSG", "No active hint"));
+            return;
+        }
+        // Prevent the hint giver from requesting a connection
+        String hintGiver = gameState.getPendingHintGiver();
+        if (hintGiver != null && hintGiver.equals(requester)){
+            sendTo(requester, OutMessage.of("ERROR").put("MSG", "Hint giver cannot request a connection"));
+            return;
+        }
+        if (gameState.isConnectionWindowOpen()){
+            sendTo(requester, OutMessage.of("ERROR").put("MSG", "Connection already in progress"));
+            return;
+        }
+        record(Journal.Type.CONNECT, requester);
+        // add to gamelogs
+        gameState.setConnectionRequester(requester); 
+        gameState.addHistory(">> CONNECTION ATTEMPT by " + requester);
+        gameState.addHistory("Connection Window: 10 seconds");
+        gameState.addHistory("Both A and " + requester + " must submit guesses!");
+        // start timer for connection window (first, for its DEADLINE)
+        connectionDeadline = replaying ? now() + TimerManager.CONNECTION_SECONDS * 1000L : timerManager.scheduleConnectionWindow(requester);
+        broadcast(OutMessage.of("CONNECTION_WINDOW").put("B2", requester).put("TIME", TimerManager.CONNECTION_SECONDS).put("DEADLINE", connectionDeadline));
+        broadcastState();
+    }
+
+    public void submitGuess(String who, String guess){
+        // If a connection window is open, only allow A or the connection requester (B2) to submit guesses
+        if (gameState.isConnectionWindowOpen()){
+            String b2 = gameState.getConnectionRequester();
+            String aPlayer = gameState.getActivePlayer();
+            if (who == null || (!who.equals(b2) && !who.equals(aPlayer))){
+                sendTo(who, OutMessage.of("ERROR").put("MSG", "Not allowed to submit guess during connection window"));
+                return;
+            }
+        }
+
+        record(Journal.Type.GUESS, who, guess);
+        // store guess (only allowed ones will reach here when connection window open)
+        gameState.putGuess(who, guess);
+        gameState.addHistory(who + " submitted guess (masked).");
+        broadcastState();
+
+        // if A and B2 has both guessed, check
+        if (gameState.isConnectionReadyToResolve()){
+            timerManager.cancelConnectionTimer();
+            resolve(); // part of this GUESS, not an event of its own
+        }
+    }
+
+    // the connection window expired
+    public void resolveConnection(){
+        record(Journal.Type.RESOLVE);
+        resolve();
+    }
+
+    private void resolve(){
+        // Gather data
+        String intended = gameState.getPendingIntended();
+        String b2 = gameState.getConnectionRequester();
+        String aPlayer = gameState.getActivePlayer();
+        String b2Guess = gameState.getGuess(b2);
+        String aGuess = gameState.getGuess(aPlayer);
+        String secret = gameState.getSecret();
+
+        gameState.addHistory("RESOLVING CONNECTION...");
+
+        // check win condition
+        if ((intended != null && intended.equalsIgnoreCase(secret)) || (b2Guess != null && b2Guess.equalsIgnoreCase(secret))){
+            gameState.addHistory("=== GAME OVER ===");
+            gameState.addHistory("WINNER: B (Communicators)");
+            gameState.addHistory("Secret word guessed directly: " + secret);
+            broadcast(OutMessage.of("GAME_OVER").put("WINNER", "B").put("MSG", "Secret guessed via connection attempt"));
+            gameState.setGameOver(true);
+            clearHintAndConnection();
+            broadcastState();
+            return;
+        }
+
+        // A guesses intended Z        
+        if (aGuess != null && intended != null && aGuess.equalsIgnoreCase(intended)){
+            gameState.loseLife();
+            broadcast(OutMessage.of("LIFE_LOST").put("REMAINING", gameState.getLives()));
+            gameState.addHistory("✗ A guessed intended word correctly!");
+            gameState.addHistory("PENALTY: Lost 1 life (Remaining: " + gameState.getLives() +")");
+            if (gameState.getLives() <= 0){
+                gameState.addHistory("=== GAME OVER ===");
+                gameState.addHistory("WINNER: A (Defender)");
+                gameState.addHistory("B team lost all lives on prefix: " + gameState.getPrefix());
+                broadcast(OutMessage.of("GAME_OVER").put("WINNER", "A").put("MSG", "B lost all lives on same prefix"));
+                gameState.setGameOver(true);
+                broadcastState();
+                return;
+            }
+            // continue with same prefix
+            gameState.addHistory("Game continues with same prefix: " + gameState.getPrefix());
+            clearHintAndConnection();
+            broadcastState();
+            return;
+        }
+
+        // A didn't guess intended.
+        // If b2 guessed intended -> reveal next letter
+        if (b2Guess != null && intended != null && b2Guess.equalsIgnoreCase(intended)){
+            gameState.revealNextLetter();
+            gameState.resetLives();
+            broadcast(OutMessage.of("CONNECTION_SUCCESS").put("NEW_PREFIX", gameState.getPrefix()).put("LIVES", "5"));
+            gameState.addHistory("✓ CONNECTION SUCCESS!");
+            gameState.addHistory("" + b2 + " guessed the intended word correctly!");
+            gameState.addHistory("NEW PREFIX: " + gameState.getPrefix() + " | Lives reset to 5");
+            if (gameState.isSecretFullyRevealed()){
+                gameState.addHistory("=== GAME OVER ===");
+                gameState.addHistory("WINNER: B (Communicators)");
+                gameState.addHistory("Secret word fully revealed: " + gameState.getSecret());
+                broadcast(OutMessage.of("GAME_OVER").put("WINNER", "B").put("MSG", "Secret fully revealed"));
+                gameState.setGameOver(true);
+            }
+            clearHintAndConnection();
+            broadcastState();
+            return;
+        }
+        // Otherwise, failed connection — reveal b1 intended and b2 guess to history, no life lost
+        gameState.addHistory("✗ CONNECTION FAILED");
+        gameState.addHistory("Intended: '" + (intended==null?"(none)":intended) + "' | " + b2 + " guessed: '" + (b2Guess==null?"(none)":b2Guess) + "'");
+        gameState.addHistory("No penalty. Game continues.");
+        clearHintAndConnection();
+        broadcast(OutMessage.of("CONNECTION_FAILED").put("MSG", "Connection failed; no lives lost"));
+        broadcastState();
+    }
+
+    // called by the hint timer (the hint is still active and from the same giver)
+    void hintTimedOut(String giver){
+        record(Journal.Type.HINT_TIMEOUT, giver);
+        gameState.addHistory("Hint timeout has expired for " + giver);
+        broadcast(OutMessage.of("HINT_TIMEOUT").put("GIVER", giver));
+        gameState.clearPendingHint();
+        timerManager.cancelHintTimeout(); // it's the one calling (nothing left to cancel), unless we're replaying
+        broadcastState();
+    }
+
+    // crash recovery
+
+    // applies one journal event through the same code that produced it (validation passes again,
+    // the state is the same as it was then); nobody is connected yet, so nothing is sent.
+    // Runs on the thread opening the journal, before any client or timer can reach the room
+    void replay(Journal.Event e){
+        if (e.lsn <= lastLsn) return; // already in the snapshot this room came from
+        lastLsn = e.lsn;
+        try{
+            replaying = true;
+            replayTime = e.time;
+            switch (e.type){
+                case ROLES -> startGame(e.arg(0));
+                case SECRET -> setSecret(e.arg(0), e.arg(1));
+                case HINT -> startHint(e.arg(0), e.arg(1), e.arg(2));
+                case CONNECT -> requestConnect(e.arg(0));
+                case GUESS -> submitGuess(e.arg(0), e.arg(1));
+                case RESOLVE -> resolve();
+                case HINT_TIMEOUT -> hintTimedOut(e.arg(0));
+                default -> {}
+            }
+        } finally{
+            replaying = false;
+        }
+    }
+
+    // after the replay: the hint / connection timers that were running get what was left of their time
+    // (an already expired one fires right away)
+    void rearmTimers(){
+        long now = System.currentTimeMillis();
+        if (gameState.isHintActive()){
+            hintDeadline = timerManager.scheduleHintTimeout(gameState.getPendingHintGiver(), Math.max(0, hintDeadline - now));
+        }
+        if (gameState.isConnectionWindowOpen()){
+            connectionDeadline = timerManager.scheduleConnectionWindow(gameState.getConnectionRequester(), Math.max(0, connectionDeadline - now));
+        }
+    }
+
+    // this room as a snapshot record, null once closed. Between two tasks, so it matches lastLsn exactly
+    byte[] snapshot(){
+        if (closed) return null;
+        try{
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(4096);
+            DataOutputStream out = new DataOutputStream(bytes);
+            Snapshot.writeString(out, id);
+            out.writeLong(lastLsn);
+            out.writeInt(stateVersion);
+            out.writeLong(hintDeadline);
+            out.writeLong(connectionDeadline);
+            gameState.writeTo(out);
+            return bytes.toByteArray();
+        } catch (IOException e){
+            throw new UncheckedIOException(e); // a byte array doesn't fail
+        }
+    }
+
+    // a room as snapshot() recorded it (no players, timers not armed yet)
+    static Room restore(GameServer server, Snapshot.Reader in){
+        Room room = new Room(in.readString(), server);
+        room.lastLsn = in.readLong();
+        room.stateVersion = in.readInt();
+        room.hintDeadline = in.readLong();
+        room.connectionDeadline = in.readLong();
+        room.gameState.readFrom(in);
+        // what joiners get is built from the sent* fields: make them describe the restored state
+        room.sentPrefix = room.gameState.getPrefix();
+        room.sentLives = room.gameState.getLives();
+        room.sentA = room.gameState.getActivePlayer() == null ? "" : room.gameState.getActivePlayer();
+        room.sentHistorySeq = room.gameState.getLastHistorySeq();
+        return room;
+    }
+
+    // real word check, only when the server was started with a dictionary
+    private boolean isWord(String word){
+        Dictionary d = server.getDictionary();
+        return d == null || (word != null && d.contains(word));
+    }
+
+    private long now(){
+        return replaying ? replayTime : System.currentTimeMillis();
+    }
+
+    // write-ahead: called once a command is accepted, before the state changes
+    private void record(Journal.Type type, String... args){
+        if (replaying) return;
+        long lsn = server.journal(new Journal.Event(type, System.currentTimeMillis(), id, args));
+        if (lsn >= 0) lastLsn = lsn;
+    }
+
+    // the hint is over: so are its timers (a stale one would fire into the next hint)
+    private void clearHintAndConnection() {
+        gameState.clearPendingHint();
+        gameState.clearConnection();
+        timerManager.cancelHintTimeout();
+        timerManager.cancelConnectionTimer();
+    }
+}
@@ -0,0 +1,8 @@
+package server;
+
+// what to do with a client whose outbound queue is full
+enum SlowConsumerPolicy {
+    DROP,       // drop the new message (a missed STATE_UPDATE is repaired by the client's RESYNC)
+    SNAPSHOT,   // throw away everything queued and send one full state snapshot instead
+    DISCONNECT  // close the connection
+}
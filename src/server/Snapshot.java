@@ -0,0 +1,156 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot class
+ * Compact copy of every room's state, written next to the journal so a restart loads it and replays
+ * only the journal events after it (instead of everything since the server first started).
+ * Each room encodes its own record on its executor, between two of its commands (a few rooms are in
+ * flight at once, so the workers encode in parallel while records are written in order);
+ * writing and fsyncing the file is done by the snapshot thread, never a game thread. Each room remembers the LSN of its
+ * last journaled event, so replay skips what its snapshot already contains.
+ *
+ * File: magic, version, journal LSN to replay from, then (int length, room record)*, int 0, crc32.
+ * Written to a temp file and renamed over the previous snapshot, so a crash leaves one or the other.
+ */
+class Snapshot {
+    static final String FILE = "snapshot.dat";
+    private static final int MAGIC = 0x534E5031; // "SNP1"
+    private static final int VERSION = 1;
+    private static final int IN_FLIGHT = 64; // room records requested ahead of the one being written
+
+    // writes every open room, returns how many; `beforePublish` runs once the file is on disk, before it
+    // replaces the old one (the journal is synced there, so no room is ahead of the journal on disk)
+    static int write(Path dir, long lsn, Collection<Room> rooms, Runnable beforePublish) throws IOException {
+        Path tmp = dir.resolve(FILE + ".tmp");
+        int n = 0;
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch), 64 * 1024), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(lsn);
+            ArrayDeque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+            Iterator<Room> it = rooms.iterator();
+            while (it.hasNext() || !pending.isEmpty()) {
+                while (it.hasNext() && pending.size() < IN_FLIGHT) {
+                    Room room = it.next();
+                    pending.add(room.call(room::snapshot));
+                }
+                byte[] record;
+                try {
+                    record = pending.poll().join();
+                } catch (CompletionException e) {
+                    throw new IOException("room record failed", e.getCause());
+                }
+                if (record == null) continue; // closed meanwhile
+                out.writeInt(record.length);
+                out.write(record);
+                n++;
+            }
+            out.writeInt(0);
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            ch.force(true);
+        }
+        beforePublish.run();
+        Files.move(tmp, dir.resolve(FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return n;
+    }
+
+    // loads the snapshot in `dir` into `rooms`, returns the LSN to replay the journal from
+    // (0: no usable snapshot, replay everything there is)
+    static long read(Path dir, GameServer server, Map<String, Room> rooms) throws IOException {
+        Path file = dir.resolve(FILE);
+        if (!Files.exists(file)) return 0;
+        byte[] data = Files.readAllBytes(file);
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, Math.max(0, data.length - 4));
+        Reader in = new Reader(data);
+        if (data.length < 24 || in.readInt() != MAGIC || in.readInt() != VERSION
+                || (int) crc.getValue() != new Reader(data, data.length - 4).readInt()) {
+            System.out.println("snapshot: " + file + " is damaged, ignoring it");
+            return 0;
+        }
+        long lsn = in.readLong();
+        int len;
+        while ((len = in.readInt()) > 0) {
+            Room room = Room.restore(server, new Reader(data, in.pos)); // decoded straight from the file's bytes
+            rooms.put(room.getId(), room);
+            in.pos += len;
+        }
+        return lsn;
+    }
+
+    // strings in a record: varint (UTF-8 length + 1) and the bytes, 0 for null
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.write(0);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        for (int v = b.length + 1; ; v >>>= 7) {
+            if ((v & ~0x7F) == 0) { out.write(v); break; }
+            out.write((v & 0x7F) | 0x80);
+        }
+        out.write(b);
+    }
+
+    // reads what DataOutputStream + writeString wrote, without copying records or string bytes twice
+    static final class Reader {
+        private final byte[] data;
+        private int pos;
+
+        Reader(byte[] data) { this(data, 0); }
+
+        Reader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        int readInt() {
+            int v = (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16 | (data[pos + 2] & 0xFF) << 8 | (data[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        long readLong() {
+            return (long) readInt() << 32 | (readInt() & 0xFFFFFFFFL);
+        }
+
+        boolean readBoolean() {
+            return data[pos++] != 0;
+        }
+
+        String readString() {
+            int n = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos++];
+                n |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+            }
+            if (n == 0) return null;
+            String s = new String(data, pos, n - 1, StandardCharsets.UTF_8);
+            pos += n - 1;
+            return s;
+        }
+    }
+}
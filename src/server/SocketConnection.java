@@ -0,0 +1,79 @@
+package server;
+import java.io.*;
+import java.net.Socket;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// classic blocking socket connection (used by the thread-per-connection mode).
+// send() only queues; a writer task drains the queue and writes everything with one flush.
+class SocketConnection implements Connection {
+    private final Socket sock; // networking - client SOCKET
+    private final InputStream in;
+    private final OutputStream out;
+    private final OutboundQueue queue;
+    private final Executor writers; // runs drain() when there is something to write
+    private final AtomicBoolean draining = new AtomicBoolean(false); // only one drain at a time keeps the order
+    private volatile boolean closed = false;
+    private volatile boolean binary = false; // BIN1 negotiated
+
+    SocketConnection(Socket sock, Executor writers, int outboundLimit) throws IOException {
+        this.sock = sock;
+        this.writers = writers;
+        this.queue = new OutboundQueue(outboundLimit);
+        sock.setTcpNoDelay(true); // we coalesce ourselves, no need for Nagle
+        this.in = sock.getInputStream();
+        this.out = new BufferedOutputStream(sock.getOutputStream(), 16 * 1024);
+    }
+
+    InputStream input() { return in; }
+
+    @Override
+    public boolean send(Frame frame) {
+        if (closed) return true; // nobody to tell, just forget it
+        if (!queue.offer(binary ? frame.binary() : frame)) return false;
+        if (draining.compareAndSet(false, true)) writers.execute(this::drain);
+        return true;
+    }
+
+    // write out everything queued (and whatever gets queued meanwhile), one flush per batch
+    private void drain() {
+        while (true) {
+            Frame[] batch = queue.pollAll();
+            if (batch.length == 0) {
+                draining.set(false);
+                // something may have been queued after pollAll but before the flag was cleared
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) return;
+                continue;
+            }
+            try {
+                for (Frame f : batch) {
+                    f.writeTo(out);
+                }
+                out.flush(); // force send
+            } catch (IOException e) {
+                close(); // reader loop notices and cleans up
+                queue.clear();
+                draining.set(false);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void useBinary() {
+        binary = true;
+    }
+
+    @Override
+    public void clearPending() {
+        queue.clear();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            sock.close(); // networking : SOCKET closed
+        } catch (IOException ignored) {}
+    }
+}
@@ -1,70 +1,88 @@
-package server; 
+package server;
 import java.util.concurrent.*;
 
-// for managing our server-side timeouts for hints & connections
-public class TimerManager { 
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final GameServer server;
+// for managing our server-side timeouts for hints & connections (one per room, the wheel is shared).
+// At most one pending timer per kind (a new one replaces it); expired timers run on the room's executor,
+// never on the wheel thread. Scheduling returns when the timer is due, on the wall clock.
+public class TimerManager {
+    enum Kind { HINT, CONNECTION }
+
+    static final int HINT_SECONDS = 60;
+    static final int CONNECTION_SECONDS = 10;
+
+    private final TimingWheel wheel;
+    private final Room room;
     private final GameState state;
-    private ScheduledFuture<?> hintFuture, connectionFuture; // Handles to running/scheduled timer tasks
+    private final TimingWheel.Timeout[] timeouts = new TimingWheel.Timeout[Kind.values().length]; // pending timer per kind
+    private final int[] generation = new int[Kind.values().length]; // bumped on cancel, so a late callback knows it's stale
 
     //constructor
-    public TimerManager(GameServer server, GameState state) { 
-        this.server = server; this.state = state; 
+    public TimerManager(Room room, GameState state, TimingWheel wheel) {
+        this.room = room; this.state = state; this.wheel = wheel;
+    }
+
+    public long scheduleHintTimeout(String giver) { // timeout (60s)
+        return scheduleHintTimeout(giver, HINT_SECONDS * 1000L);
+    }
+
+    // also used after a restart, with whatever was left of the 60s
+    public long scheduleHintTimeout(String giver, long millis) {
+        // a hint timer still pending belongs to an older hint: this one replaces it
+        return schedule(Kind.HINT, () -> {
+            // after 60 sec if hint still active & from same player, process timeout
+            if (state.isHintActive() && giver.equals(state.getPendingHintGiver())) {
+                room.hintTimedOut(giver);
+            }
+        }, millis);
     }
 
-    public void scheduleHintTimeout(String giver) { // timeout (60s)
+    // cancel hint timer
+    public void cancelHintTimeout() {
+        cancel(Kind.HINT);
+    }
+
+    public long scheduleConnectionWindow(String b2) { // timeout (10s)
+        return scheduleConnectionWindow(b2, CONNECTION_SECONDS * 1000L);
+    }
 
-        // if hint timer already running, we don't start a new one
-        if (hintFuture != null && !hintFuture.isDone()){
-            return;
-        }
-         
-        hintFuture = scheduler.schedule(() -> { 
-            synchronized (server) { // locking server for thread safety
-                // after 60 sec if hint still active & from same player, process timeout
-                if (state.isHintActive() && giver.equals(state.getPendingHintGiver())) { 
-                    state.addHistory("Hint timeout has expired for " + giver); 
-                    server.broadcast("TYPE:HINT_TIMEOUT\nGIVER:" + giver); 
-                    state.clearPendingHint(); 
-                    server.broadcastState(); 
-                }
+    public long scheduleConnectionWindow(String b2, long millis) {
+        // same: a new window replaces whatever connection timer was left
+        return schedule(Kind.CONNECTION, () -> {
+            // the window may already have been resolved by both guesses while we waited
+            if (state.isConnectionWindowOpen() && b2.equals(state.getConnectionRequester())) {
+                room.resolveConnection();
             }
-        }, 60, TimeUnit.SECONDS); 
+        }, millis);
     }
 
-    // cancel hint timer and null ref
-    public void cancelHintTimeout() { 
-        if (hintFuture != null && !hintFuture.isDone()) {
-            hintFuture.cancel(true); 
-            hintFuture = null; 
-        }
+    public void cancelConnectionTimer() {
+        cancel(Kind.CONNECTION);
     }
 
-    public void scheduleConnectionWindow(String b2) { // timeout (10s)
-        // if connection timer already running, we don't start a new one
-        if (connectionFuture != null && !connectionFuture.isDone()){
-            return;
-        }
-        connectionFuture = scheduler.schedule(() -> { 
-            synchronized (server) { 
-                server.resolveConnection(); 
-            } 
-        }, 10, TimeUnit.SECONDS);
+    // for cleanup we cancel timers (the wheel itself belongs to the server)
+    public void shutdown() {
+        for (Kind k : Kind.values()) cancel(k);
     }
 
-    
-    public void cancelConnectionTimer() { 
-        if (connectionFuture != null && !connectionFuture.isDone()) {
-            connectionFuture.cancel(true); 
-            connectionFuture = null; 
-        }
+    // callers run on the room's executor, so timeouts/generation need no locking.
+    // Returns the wall clock time (ms) the wheel will fire it at
+    private long schedule(Kind kind, Runnable task, long millis) {
+        int k = kind.ordinal();
+        cancel(kind);
+        int gen = ++generation[k];
+        timeouts[k] = wheel.schedule(() -> {
+            if (generation[k] != gen) return; // cancelled (or replaced) after it had already fired
+            timeouts[k] = null;
+            task.run();
+        }, millis, TimeUnit.MILLISECONDS, room::runTimer);
+        return System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(timeouts[k].dueNanos() - System.nanoTime());
     }
 
-    // for cleanup we cancel timers and stop scheduler
-    public void shutdown() { 
-        cancelHintTimeout(); 
-        cancelConnectionTimer(); 
-        scheduler.shutdownNow(); 
+    private void cancel(Kind kind) {
+        int k = kind.ordinal();
+        if (timeouts[k] == null) return;
+        timeouts[k].cancel();
+        timeouts[k] = null;
+        generation[k]++;
     }
 }
@@ -0,0 +1,153 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * TimingWheel class
+ * Hashed timing wheel shared by every room: `slots` buckets of `tickMillis` each, a timeout lives in
+ * the bucket of its deadline tick (longer delays just wait for more turns of the wheel).
+ * schedule() and cancel() are O(1) (linking/unlinking in a bucket), whatever the number of pending timers.
+ * The ticker thread never runs a timer itself, it hands the task to the executor given at schedule time
+ * (the owning room), so one slow room can't delay the others' expiries.
+ */
+class TimingWheel {
+    private final long tickNanos;
+    private final Timeout[] buckets; // sentinel per bucket (circular doubly linked list)
+    private final int mask;
+    private final ReentrantLock lock = new ReentrantLock(); // guards the buckets and `tick`
+    private final long startNanos = System.nanoTime();
+    private long tick = 0; // next tick the ticker will process
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final Metrics.Histogram lag; // how late expiries start running, null: not measured
+
+    // slots is rounded up to a power of two
+    TimingWheel(long tickMillis, int slots, Metrics.Histogram lag) {
+        this.lag = lag;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        int n = Integer.highestOneBit(Math.max(2, slots) * 2 - 1);
+        this.buckets = new Timeout[n];
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) buckets[i] = new Timeout(null, null, 0);
+        this.thread = new Thread(this::run, "timer-wheel");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // run `task` on `executor` once `delay` has passed (rounded up to the tick)
+    Timeout schedule(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        long deadline = System.nanoTime() - startNanos + unit.toNanos(delay);
+        long deadlineTick = (deadline + tickNanos - 1) / tickNanos;
+        Timeout t = new Timeout(task, executor, 0);
+        lock.lock();
+        try {
+            t.deadlineTick = Math.max(deadlineTick, tick); // ticker already passed it: next tick
+            t.linkBefore(buckets[(int) (t.deadlineTick & mask)]);
+        } finally {
+            lock.unlock();
+        }
+        return t;
+    }
+
+    void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (running) {
+            long wait = tick * tickNanos - (System.nanoTime() - startNanos); // tick n is due n ticks after start
+            if (wait > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    continue; // stop() or a spurious interrupt, `running` decides
+                }
+            }
+            lock.lock();
+            try {
+                Timeout head = buckets[(int) (tick & mask)];
+                for (Timeout t = head.next; t != head; ) {
+                    Timeout next = t.next;
+                    if (t.deadlineTick <= tick) { // otherwise it's due on a later turn
+                        t.unlink();
+                        expired.add(t);
+                    }
+                    t = next;
+                }
+                tick++;
+            } finally {
+                lock.unlock();
+            }
+            for (Timeout t : expired) {
+                try {
+                    if (lag == null) t.executor.execute(t.task);
+                    else {
+                        long due = startNanos + t.deadlineTick * tickNanos;
+                        t.executor.execute(() -> {
+                            lag.record(System.nanoTime() - due); // wheel granularity + executor queueing
+                            t.task.run();
+                        });
+                    }
+                } catch (RuntimeException e) { // e.g. executor already shut down
+                    System.out.println("Timer dispatch failed: " + e);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    // handle of a scheduled task
+    final class Timeout {
+        private final Runnable task;
+        private final Executor executor;
+        private long deadlineTick;
+        private Timeout prev = this, next = this; // bucket links (self when not in a bucket)
+
+        private Timeout(Runnable task, Executor executor, long deadlineTick) {
+            this.task = task;
+            this.executor = executor;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // true if it was still pending (it will never run now)
+        boolean cancel() {
+            lock.lock();
+            try {
+                if (next == this) return false; // already fired or cancelled
+                unlink();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // System.nanoTime() it's due at: the delay rounded up to its tick (it runs on that tick)
+        long dueNanos() {
+            lock.lock();
+            try {
+                return startNanos + deadlineTick * tickNanos;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void linkBefore(Timeout head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = next = this;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// a bot only keeps people company: once no human holds a seat (connected or within the grace period)
+// it leaves too, and the room can close
+class BotEvictionTest {
+
+    @TempDir
+    Path dir;
+
+    private int start(String grace) throws Exception {
+        Path index = dir.resolve("bot.txt");
+        Files.writeString(index, "octopus: eight arms ink sea\npiano: keys music\n");
+        return TestServer.start("--bot-index=" + index, "--resume-grace=" + grace, "--max-handshakes=0", "--accept-rate=0");
+    }
+
+    // alice in her own room with a bot
+    private static void withBot(TestServer.Client alice) throws Exception {
+        alice.send("TYPE:CREATE_ROOM\nROOM:practice");
+        alice.next("ROOM_CREATED");
+        alice.send("TYPE:JOIN\nNAME:alice\nROOM:practice");
+        alice.next("JOINED");
+        alice.send("TYPE:ADD_BOT");
+        assertEquals("bot", TestServer.value(alice.next("PLAYER_READY"), "NAME")); // joined and said READY
+    }
+
+    private static List<String> join(TestServer.Client c, String name) throws Exception {
+        c.send("TYPE:JOIN\nNAME:" + name + "\nROOM:practice");
+        while (true) { // JOINED, or the ERROR that there's no such room
+            List<String> msg = c.next(null);
+            if (msg.get(0).equals("TYPE:JOINED") || msg.get(0).equals("TYPE:ERROR")) return msg;
+        }
+    }
+
+    @Test
+    void lastHumanLeavingTakesTheBotAndClosesTheRoom() throws Exception {
+        int port = start("0");
+        try (TestServer.Client alice = new TestServer.Client(port); TestServer.Client carol = new TestServer.Client(port)) {
+            withBot(alice);
+            assertEquals("TYPE:JOINED", join(carol, "carol").get(0));
+
+            carol.send("TYPE:LEAVE_ROOM"); // a human is still there: the bot stays
+            carol.next("LEFT_ROOM");
+            alice.send("TYPE:RESYNC");
+            List<String> full;
+            do full = alice.next("STATE_UPDATE"); while (!full.contains("FULL:true"));
+            assertTrue(full.contains("PLAYER:bot:READY:true"), full.toString());
+
+            alice.send("TYPE:LEAVE_ROOM");
+            alice.next("LEFT_ROOM"); // the bot left in the same room task
+            assertEquals("MSG:No such room", join(carol, "carol").get(1));
+        }
+    }
+
+    @Test
+    void botWaitsForAPlayerWithinTheGracePeriod() throws Exception {
+        int port = start("1");
+        try (TestServer.Client other = new TestServer.Client(port)) {
+            long dropped;
+            try (TestServer.Client alice = new TestServer.Client(port)) {
+                withBot(alice);
+                dropped = System.nanoTime();
+            }
+            List<String> reply = join(other, "carol"); // alice's seat is held: the room (and its bot) is still there
+            assertEquals("TYPE:JOINED", reply.get(0));
+            other.send("TYPE:LEAVE_ROOM");
+            other.next("LEFT_ROOM");
+
+            long giveUp = System.nanoTime() + 10_000_000_000L;
+            do { // once alice's grace period is over nobody is left but the bot
+                assertTrue(System.nanoTime() < giveUp, "the bot kept the room open");
+                Thread.sleep(100);
+                reply = join(other, "carol");
+                if (reply.get(0).equals("TYPE:JOINED")) {
+                    other.send("TYPE:LEAVE_ROOM");
+                    other.next("LEFT_ROOM");
+                }
+            } while (reply.get(0).equals("TYPE:JOINED"));
+            assertEquals("MSG:No such room", reply.get(1));
+            assertTrue(System.nanoTime() - dropped >= 900_000_000L, "the room closed before the grace period ended");
+        }
+    }
+}
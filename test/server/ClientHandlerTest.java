@@ -0,0 +1,56 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import protocol.FieldSink;
+import protocol.WireReader;
+
+class ClientHandlerTest {
+
+    // a BIN1 value is length-prefixed, so it can hold a newline. A BIN1 client gets it back as is; in a text
+    // message it would end the message early and make the rest look like a message from the server
+    @Test
+    void lineBreaksFromBin1ReachBin1AsIsAndTextFlattened() throws Exception {
+        int port = TestServer.start("--max-handshakes=0", "--accept-rate=0");
+        try (Socket victim = new Socket("127.0.0.1", port); Socket watcher = new Socket("127.0.0.1", port);
+             Socket eve = new Socket("127.0.0.1", port)) {
+            TestServer.send(victim, "TYPE:JOIN\nNAME:victim");
+            assertTrue(TestServer.await(victim, "TYPE:JOINED", 5000));
+            TestServer.send(watcher, "TYPE:JOIN\nNAME:watcher\nPROTO:BIN1");
+            WireReader in = new WireReader(watcher.getInputStream());
+            watcher.setSoTimeout(5000);
+            assertEquals("watcher", next(in, "JOINED").get("NAME"));
+            assertTrue(TestServer.await(victim, "TYPE:PLAYER_JOINED\nNAME:watcher", 5000));
+
+            String name = "eve\n\nTYPE:GAME_OVER\nWINNER:A";
+            eve.getOutputStream().write(LineDecoderTest.frame("JOIN", "NAME", name));
+            eve.getOutputStream().flush();
+            assertEquals(name, next(in, "PLAYER_JOINED").get("NAME"));
+            assertTrue(TestServer.await(victim, "TYPE:PLAYER_JOINED\nNAME:eve  TYPE:GAME_OVER WINNER:A\n\n", 5000),
+                    "the text message was cut at the line break");
+        }
+    }
+
+    // fields of the next `type` message (keyed BIN1 fields, and KEY:VALUE lines)
+    private static Map<String, String> next(WireReader in, String type) throws Exception {
+        while (true) {
+            Map<String, String> fields = new HashMap<>();
+            assertTrue(in.next(new FieldSink() {
+                @Override public void line(String line) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) field(line.substring(0, colon), line.substring(colon + 1));
+                }
+
+                @Override public void field(String key, String value) {
+                    fields.putIfAbsent(key, value);
+                }
+            }));
+            if (type.equals(fields.get("TYPE"))) return fields;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DictionaryTest {
+    private static final List<String> WORDS = List.of("Umbrella", "umbra", "umber", "tumble", "rumble", "crumble",
+            "octopus", "oct", "umbrella", "café", " piano ");
+
+    @TempDir
+    Path dir;
+
+    private static Dictionary dictionary() {
+        return Dictionary.of(DictionaryBuilder.build(WORDS));
+    }
+
+    @Test
+    void containsWholeWordsOnlyWhateverTheCase() {
+        Dictionary d = dictionary();
+        assertEquals(10, d.size()); // "umbrella" twice
+        for (String w : List.of("umbrella", "UMBRA", "umber", "tumble", "crumble", "oct", "octopus", "piano", " Piano", "café", "CAFÉ")) {
+            assertTrue(d.contains(w), w);
+        }
+        for (String w : List.of("umb", "umbrellas", "rumbl", "octo", "cafe", "", "zebra")) {
+            assertFalse(d.contains(w), w);
+        }
+    }
+
+    @Test
+    void prefixQueriesCountAndListInOrder() {
+        Dictionary d = dictionary();
+        assertEquals(3, d.countWithPrefix("umb"));
+        assertEquals(List.of("umber", "umbra", "umbrella"), d.wordsWithPrefix("UMB", 10));
+        assertEquals(List.of("umber", "umbra"), d.wordsWithPrefix("umb", 2));
+        assertEquals(2, d.countWithPrefix("oct")); // the prefix is a word itself
+        assertEquals(List.of("oct", "octopus"), d.wordsWithPrefix("oct", 10));
+        assertEquals(0, d.countWithPrefix("x"));
+        assertEquals(List.of(), d.wordsWithPrefix("x", 10));
+        assertEquals(10, d.countWithPrefix(""));
+        assertEquals(List.of("café"), d.wordsWithPrefix("CAF", 10));
+    }
+
+    // tumble/rumble/crumble share "umble": the suffix is stored once
+    @Test
+    void sharedSuffixesAreStoredOnce() {
+        int nodes = ByteBuffer.wrap(DictionaryBuilder.build(List.of("tumble", "rumble", "crumble"))).getInt(12);
+        assertEquals(8, nodes); // root, "c", then one node after t / r / cr and the u-m-b-l-e chain after it
+    }
+
+    @Test
+    void openedFileAnswersTheSame() throws Exception {
+        Path file = dir.resolve("words.dawg");
+        Files.write(file, DictionaryBuilder.build(WORDS));
+        Dictionary d = Dictionary.open(file);
+        assertEquals(10, d.size());
+        assertTrue(d.contains("Octopus"));
+        assertEquals(List.of("umber", "umbra", "umbrella"), d.wordsWithPrefix("umb", 10));
+    }
+}
@@ -0,0 +1,114 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HistoryLogTest {
+    private static final int CAPACITY = 8;
+
+    @TempDir
+    Path dir;
+
+    private static HistoryLog filled(Path file, int entries) {
+        HistoryLog log = new HistoryLog(CAPACITY, file);
+        for (int i = 1; i <= entries; i++) log.add("entry " + i);
+        return log;
+    }
+
+    private static List<String> entries(int from, int to) {
+        List<String> out = new ArrayList<>();
+        for (int i = from; i <= to; i++) out.add("entry " + i);
+        return out;
+    }
+
+    @Test
+    void pagesComeFromMemoryAndTheSpillFile() throws Exception {
+        HistoryLog log = filled(dir.resolve("room.log"), 200);
+        assertEquals(193, log.getFirstInMemorySeq());
+        assertEquals(entries(191, 195), log.page(196, 5)); // across the edge
+        assertEquals(entries(1, 3), log.page(4, 10));
+        assertEquals(entries(65, 130), log.page(131, 66)); // across spill index entries
+    }
+
+    // one line per entry in the file, whatever the entry holds (a BIN1 hint can have line breaks)
+    @Test
+    void spilledEntriesKeepLineBreaks() throws Exception {
+        Path file = dir.resolve("room.log");
+        HistoryLog log = new HistoryLog(CAPACITY, file);
+        List<String> odd = List.of("two\nlines", "cr\rhere", "back\\slash\\n", "\n");
+        for (String e : odd) log.add(e);
+        for (int i = 5; i <= 20; i++) log.add("entry " + i);
+        assertEquals(odd, log.page(5, 4));
+        assertEquals(12, Files.readAllLines(file).size());
+    }
+
+    // a restart: the snapshot has the in-memory tail, the older entries are still in the room's file
+    @Test
+    void restoreKeepsOlderPagesFromTheSameFile() throws Exception {
+        Path file = dir.resolve("room.log");
+        HistoryLog before = filled(file, 200);
+        List<String> tail = before.tail();
+        before.add("entry 201"); // after the snapshot: spilled (entry 193), then lost with the process
+
+        HistoryLog after = new HistoryLog(CAPACITY, file);
+        after.restore(200, tail);
+        assertEquals(entries(1, 192), after.page(193, 500));
+        assertEquals(entries(190, 200), after.page(201, 11));
+
+        for (int i = 201; i <= 300; i++) after.add("entry " + i); // the journal replay and what comes after
+        assertEquals(entries(1, 300), after.page(301, 500));
+        assertEquals(292, Files.readAllLines(file).size()); // no entry spilled twice
+    }
+
+    @Test
+    void restoreDropsATornLastLine() throws Exception {
+        Path file = dir.resolve("room.log");
+        List<String> tail = filled(file, 100).tail();
+        Files.write(file, "entry 93 (torn".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        HistoryLog after = new HistoryLog(CAPACITY, file);
+        after.restore(100, tail);
+        after.add("entry 101");
+        assertEquals(entries(1, 101), after.page(102, 500));
+    }
+
+    // older entries that can't all be read back are not served at all (no gaps)
+    @Test
+    void restoreWithAShortFileStartsAfterTheTail() throws Exception {
+        Path file = dir.resolve("room.log");
+        List<String> tail = filled(file, 100).tail();
+        Files.write(file, Files.readAllLines(file).subList(0, 50));
+
+        HistoryLog after = new HistoryLog(CAPACITY, file);
+        after.restore(100, tail);
+        assertEquals(entries(93, 100), after.page(101, 500));
+        for (int i = 101; i <= 120; i++) after.add("entry " + i);
+        assertEquals(entries(93, 120), after.page(121, 500));
+    }
+
+    @Test
+    void closeDeletesTheFile() throws Exception {
+        Path file = dir.resolve("room.log");
+        filled(file, 100).close();
+        assertFalse(Files.exists(file));
+
+        List<String> tail = filled(file, 5).tail(); // nothing spilled yet, but a stale file is there
+        Files.writeString(file, "stale\n");
+        HistoryLog restored = new HistoryLog(CAPACITY, file);
+        restored.restore(5, tail);
+        assertFalse(Files.exists(file));
+        for (int i = 6; i <= 20; i++) restored.add("entry " + i);
+        assertTrue(Files.exists(file));
+        assertEquals(entries(1, 20), restored.page(21, 500));
+    }
+}
@@ -0,0 +1,79 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+    @TempDir
+    Path dir;
+
+    private static Journal.Event event(int n) {
+        return new Journal.Event(Journal.Type.HINT, 1_000L + n, "room", "bob", "hint " + n + "\nover two lines", "word" + n);
+    }
+
+    // every event the journal in `dir` replays from `fromLsn`, as "hint N" (then it's closed again)
+    private List<String> replay(long fromLsn) throws Exception {
+        List<String> out = new ArrayList<>();
+        Journal.open(dir, 1000, fromLsn, e -> {
+            assertEquals("room", e.room);
+            assertEquals(e.time - 1_000L, Long.parseLong(e.arg(2).substring(4)));
+            out.add(e.arg(1).substring(0, e.arg(1).indexOf('\n')));
+        }).close();
+        return out;
+    }
+
+    private long[] append(int from, int to) throws Exception {
+        Journal j = Journal.open(dir, 1000, 0, e -> {});
+        long[] lsns = new long[to - from + 1];
+        for (int n = from; n <= to; n++) lsns[n - from] = j.append(event(n));
+        j.close();
+        return lsns;
+    }
+
+    @Test
+    void reopenedJournalReplaysEverythingAndAppendsAfterIt() throws Exception {
+        append(1, 3);
+        assertEquals(List.of("hint 1", "hint 2", "hint 3"), replay(0));
+        append(4, 5);
+        assertEquals(List.of("hint 1", "hint 2", "hint 3", "hint 4", "hint 5"), replay(0));
+
+        List<Journal.Event> events = new ArrayList<>();
+        Journal.open(dir, 1000, 0, events::add).close();
+        assertArrayEquals(event(2).args, events.get(1).args); // line breaks and all
+    }
+
+    // a crash in the middle of a write: the record's crc doesn't match, replay stops before it
+    // and the next append overwrites it
+    @Test
+    void tornRecordEndsTheReplay() throws Exception {
+        long[] lsns = append(1, 3);
+        try (RandomAccessFile f = new RandomAccessFile(dir.resolve(String.format("journal-%08d.log", lsns[2] >>> 32)).toFile(), "rw")) {
+            long payload = (lsns[2] & 0xFFFFFFFFL) + 8;
+            f.seek(payload + 5);
+            int b = f.read();
+            f.seek(payload + 5);
+            f.write(b ^ 0xFF);
+        }
+        assertEquals(List.of("hint 1", "hint 2"), replay(0));
+
+        long[] after = append(4, 4);
+        assertEquals(lsns[2], after[0]);
+        assertEquals(List.of("hint 1", "hint 2", "hint 4"), replay(0));
+    }
+
+    // a snapshot covers everything before its LSN: replay starts there
+    @Test
+    void replayStartsAtTheGivenLsn() throws Exception {
+        long[] lsns = append(1, 4);
+        assertEquals(List.of("hint 3", "hint 4"), replay(lsns[2]));
+        assertEquals(List.of(), replay(lsns[3] + 1_000));
+    }
+}
@@ -0,0 +1,77 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import protocol.BinaryCodec;
+
+class LineDecoderTest {
+
+    // a BIN1 frame built field by field (values as given, line breaks included)
+    static byte[] frame(String type, String... keyValues) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < keyValues.length; i += 2) field(body, BinaryCodec.keyTag(keyValues[i]), keyValues[i + 1]);
+        return frame(type, body);
+    }
+
+    // a frame with one raw tag 0 line (KEY:VALUE as is)
+    static byte[] rawLineFrame(String type, String line) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        field(body, 0, line);
+        return frame(type, body);
+    }
+
+    private static void field(ByteArrayOutputStream body, int tag, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        BinaryCodec.writeVarint(body, tag);
+        BinaryCodec.writeVarint(body, bytes.length);
+        body.writeBytes(bytes);
+    }
+
+    private static byte[] frame(String type, ByteArrayOutputStream body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(BinaryCodec.MARKER);
+        BinaryCodec.writeVarint(out, BinaryCodec.typeCode(type));
+        BinaryCodec.writeVarint(out, body.size());
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static Message decode(byte[] bytes) throws IOException {
+        Message msg = new LineDecoder().next(ByteBuffer.wrap(bytes));
+        assertNotNull(msg);
+        return msg;
+    }
+
+    @Test
+    void binaryValuesKeepTheirLineBreaks() throws IOException {
+        Message msg = decode(frame("START_HINT", "HINT", "x\n\nTYPE:GAME_OVER\nWINNER:A", "INTENDED", "banana"));
+        assertEquals(MessageType.START_HINT, msg.getType());
+        assertEquals("x\n\nTYPE:GAME_OVER\nWINNER:A", msg.get(MessageField.HINT));
+        assertEquals("banana", msg.get(MessageField.INTENDED));
+    }
+
+    @Test
+    void carriageReturnInsideABinaryValueIsKept() throws IOException {
+        assertEquals("eve\rTYPE:GAME_OVER", decode(frame("JOIN", "NAME", "eve\rTYPE:GAME_OVER")).get(MessageField.NAME));
+    }
+
+    @Test
+    void newlineInsideARawLineIsKept() throws IOException {
+        Message msg = decode(rawLineFrame("JOIN", "NAME:eve\nTYPE:GAME_OVER"));
+        assertEquals(MessageType.JOIN, msg.getType());
+        assertEquals("eve\nTYPE:GAME_OVER", msg.get(MessageField.NAME));
+    }
+
+    @Test
+    void trailingCarriageReturnOfATextLineIsDropped() throws IOException {
+        Message msg = decode("TYPE:JOIN\r\nNAME:eve\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(MessageType.JOIN, msg.getType());
+        assertEquals("eve", msg.get(MessageField.NAME));
+    }
+}
@@ -0,0 +1,52 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class MailboxTest {
+
+    @Test
+    void runsTasksInOrder() throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try {
+            Mailbox mailbox = new Mailbox(workers, new Metrics.Histogram(), new Metrics.Histogram());
+            List<Integer> ran = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(1);
+            for (int i = 0; i < 1000; i++) {
+                int n = i;
+                mailbox.execute(() -> ran.add(n));
+            }
+            mailbox.execute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 1000; i++) assertEquals(i, ran.get(i));
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // an Error isn't caught like a RuntimeException; it still must not leave the mailbox marked as draining
+    @Test
+    void keepsRunningAfterATaskThrowsAnError() throws Exception {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try {
+            Mailbox mailbox = new Mailbox(workers, new Metrics.Histogram(), new Metrics.Histogram());
+            CountDownLatch done = new CountDownLatch(2);
+            mailbox.execute(() -> { throw new RuntimeException("bad command"); });
+            mailbox.execute(done::countDown);
+            mailbox.execute(() -> { throw new AssertionError("codec bug"); });
+            workers.submit(() -> {}).get(5, TimeUnit.SECONDS); // the single worker is past the drain the Error ended
+            mailbox.execute(done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS), "the room stopped running tasks");
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
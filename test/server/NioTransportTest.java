@@ -0,0 +1,49 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class NioTransportTest {
+
+    // a client that stopped reading has a batch in flight the socket will never take. When the server
+    // closes it (here: the idle sweep evicts it), the close has to happen anyway, or the seat is never freed
+    @Test
+    void closesAPeerThatNeverReads() throws Exception {
+        int port = TestServer.start("--nio", "--io-threads=1", "--slow-consumer=drop", "--heartbeat=0", "--idle-timeout=2",
+                "--resume-grace=0", "--max-handshakes=0", "--accept-rate=0");
+        try (Socket watcher = new Socket("127.0.0.1", port); Socket stuck = new Socket()) {
+            TestServer.send(watcher, "TYPE:JOIN\nNAME:watcher");
+            assertTrue(TestServer.await(watcher, "TYPE:JOINED", 5000));
+            Thread keepAlive = new Thread(() -> { // the watcher isn't idle, only the stuck one is
+                try {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        TestServer.send(watcher, "TYPE:PING");
+                        Thread.sleep(300);
+                    }
+                } catch (IOException | InterruptedException stop) {}
+            }, "keep-alive");
+            keepAlive.setDaemon(true);
+            keepAlive.start();
+
+            String name = "stuck" + "x".repeat(8000); // in every snapshot, so each one is ~8 KB
+            stuck.setReceiveBufferSize(4096); // before connecting, so the window stays small
+            stuck.connect(new InetSocketAddress("127.0.0.1", port));
+            OutputStream out = stuck.getOutputStream();
+            out.write(("TYPE:JOIN\nNAME:" + name + "\n\n").getBytes(StandardCharsets.UTF_8));
+            // every RESYNC is answered with a snapshot nobody reads: half a second of them fills the socket
+            // many times over (what doesn't fit is dropped), then it goes quiet until the sweep evicts it
+            byte[] resync = "TYPE:RESYNC\n\n".getBytes(StandardCharsets.UTF_8);
+            for (long end = System.currentTimeMillis() + 500; System.currentTimeMillis() < end; ) out.write(resync);
+
+            boolean left = TestServer.await(watcher, "TYPE:PLAYER_LEFT\nNAME:" + name, 10_000);
+            keepAlive.interrupt();
+            assertTrue(left, "the server never closed a connection that stopped reading");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// a dropped player keeps the seat for --resume-grace seconds: RESUME with the JOINED token takes it back and
+// gets only the history after SEQ; after the grace period the seat is gone and so is the token
+class ResumeTest {
+
+    private static String join(TestServer.Client c, String name) throws Exception {
+        c.send("TYPE:JOIN\nNAME:" + name);
+        return TestServer.value(c.next("JOINED"), "TOKEN");
+    }
+
+    private static List<String> history(List<String> msg) {
+        return msg.subList(msg.indexOf("HISTORY_START") + 1, msg.indexOf("HISTORY_END"));
+    }
+
+    @Test
+    void resumeWithinTheGracePeriodKeepsTheSeat() throws Exception {
+        int port = TestServer.start("--resume-grace=2", "--max-handshakes=0", "--accept-rate=0");
+        try (TestServer.Client bob = new TestServer.Client(port); TestServer.Client carol = new TestServer.Client(port)) {
+            String token;
+            String a;
+            try (TestServer.Client alice = new TestServer.Client(port)) {
+                token = join(alice, "alice");
+                join(bob, "bob");
+                join(carol, "carol");
+                for (TestServer.Client c : List.of(alice, bob, carol)) c.send("TYPE:READY");
+                a = TestServer.value(alice.next("ROLES_ASSIGNED"), "A"); // the game started: 4 history entries
+            } // alice's connection drops
+
+            try (TestServer.Client back = new TestServer.Client(port)) {
+                back.send("TYPE:RESUME\nTOKEN:" + token + "\nSEQ:2"); // as if entries 3 and 4 were missed
+                List<String> resumed = back.next("RESUMED");
+                assertEquals("alice", TestServer.value(resumed, "NAME"));
+                assertEquals(token, TestServer.value(resumed, "TOKEN"));
+                List<String> catchUp = back.next("STATE_UPDATE");
+                assertEquals("true", TestServer.value(catchUp, "CATCHUP"));
+                assertEquals(a, TestServer.value(catchUp, "A"));
+                List<String> missed = history(catchUp);
+                assertEquals(2, missed.size());
+                assertTrue(missed.get(0).startsWith("3:") && missed.get(1).startsWith("4:"), missed.toString());
+
+                Thread.sleep(2500); // past the grace period: the cancelled timer must not free the seat
+                bob.send("TYPE:RESYNC");
+                List<String> full;
+                do full = bob.next("STATE_UPDATE"); while (!full.contains("FULL:true")); // bob hasn't read the game so far
+                assertTrue(full.contains("PLAYER:alice:READY:true"), full.toString());
+                back.send("TYPE:READY"); // still seated on the new connection
+                assertEquals("alice", TestServer.value(bob.next("PLAYER_READY"), "NAME"));
+            }
+        }
+    }
+
+    @Test
+    void resumeAfterTheGracePeriodFails() throws Exception {
+        int port = TestServer.start("--resume-grace=1", "--max-handshakes=0", "--accept-rate=0");
+        try (TestServer.Client bob = new TestServer.Client(port)) {
+            String token;
+            try (TestServer.Client alice = new TestServer.Client(port)) {
+                token = join(alice, "alice");
+                join(bob, "bob");
+            }
+            long dropped = System.nanoTime();
+            assertEquals("alice", TestServer.value(bob.next("PLAYER_LEFT"), "NAME"));
+            assertTrue(System.nanoTime() - dropped >= 900_000_000L, "the seat was freed before the grace period ended");
+
+            try (TestServer.Client back = new TestServer.Client(port)) {
+                back.send("TYPE:RESUME\nTOKEN:" + token + "\nSEQ:0");
+                assertEquals("Session expired, JOIN again", TestServer.value(back.next("RESUME_FAILED"), "MSG"));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// STATE_UPDATE deltas: each one names the VERSION it brings a client to and the BASE it applies on,
+// and carries only what changed; a joiner or a RESYNC gets the whole state at the current version
+class StateUpdateTest {
+
+    private static int version(List<String> msg) {
+        return Integer.parseInt(TestServer.value(msg, "VERSION"));
+    }
+
+    // the players section, sorted (seats are kept in a hash map)
+    private static List<String> players(List<String> msg) {
+        return msg.subList(msg.indexOf("PLAYERS_START") + 1, msg.indexOf("PLAYERS_END")).stream().sorted().toList();
+    }
+
+    @Test
+    void deltasChainByVersionAndResyncSendsEverything() throws Exception {
+        int port = TestServer.start("--max-handshakes=0", "--accept-rate=0");
+        try (TestServer.Client alice = new TestServer.Client(port); TestServer.Client bob = new TestServer.Client(port)) {
+            alice.send("TYPE:JOIN\nNAME:alice");
+            List<String> first = alice.next("STATE_UPDATE");
+            assertEquals("true", TestServer.value(first, "FULL"));
+            assertEquals(List.of("PLAYER:alice:READY:false"), players(first));
+
+            bob.send("TYPE:JOIN\nNAME:bob");
+            List<String> joined = alice.next("STATE_UPDATE");
+            assertEquals(version(first), Integer.parseInt(TestServer.value(joined, "BASE")));
+            assertEquals(version(first) + 1, version(joined));
+            assertNull(TestServer.value(joined, "FULL"));
+            assertEquals(List.of("PLAYER:bob:READY:false"), players(joined)); // alice didn't change
+            assertNull(TestServer.value(joined, "PREFIX")); // nor did the prefix
+
+            List<String> bobFirst = bob.next("STATE_UPDATE"); // the joiner starts at the same version, in full
+            assertEquals("true", TestServer.value(bobFirst, "FULL"));
+            assertEquals(version(joined), version(bobFirst));
+            assertEquals(List.of("PLAYER:alice:READY:false", "PLAYER:bob:READY:false"), players(bobFirst));
+
+            alice.send("TYPE:READY");
+            List<String> ready = bob.next("STATE_UPDATE");
+            assertEquals(version(joined), Integer.parseInt(TestServer.value(ready, "BASE")));
+            assertEquals(version(joined) + 1, version(ready));
+            assertEquals(List.of("PLAYER:alice:READY:true"), players(ready));
+            assertEquals(ready, alice.next("STATE_UPDATE")); // one frame for everybody
+
+            bob.send("TYPE:LEAVE_ROOM");
+            List<String> left = alice.next("STATE_UPDATE");
+            assertEquals(version(ready) + 1, version(left));
+            assertEquals(List.of("REMOVED:bob"), players(left));
+
+            alice.send("TYPE:RESYNC"); // as if a delta was lost: everything at the current version
+            List<String> full = alice.next("STATE_UPDATE");
+            assertEquals("true", TestServer.value(full, "FULL"));
+            assertEquals(version(left), version(full));
+            assertNull(TestServer.value(full, "BASE"));
+            assertEquals(List.of("PLAYER:alice:READY:true"), players(full));
+            assertTrue(full.contains("HISTORY_START") && full.contains("HISTORY_END"));
+            assertFalse(full.contains("REMOVED:bob"));
+        }
+    }
+}
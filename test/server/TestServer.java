@@ -0,0 +1,116 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+// a real server on a free loopback port for the tests (started like from the command line, never stopped:
+// its threads are daemons or die with the test JVM), plus the few socket helpers the tests share
+final class TestServer {
+    private TestServer() {}
+
+    // options as GameServer takes them (no port, no journal, a fresh history dir); returns once it accepts connections
+    static int start(String... options) throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        String[] args = new String[options.length + 3];
+        args[0] = String.valueOf(port);
+        args[1] = "--no-journal";
+        args[2] = "--history-dir=" + Files.createTempDirectory("history"); // its own: it deletes files of rooms it doesn't have
+        System.arraycopy(options, 0, args, 3, options.length);
+        Thread t = new Thread(() -> {
+            try {
+                GameServer.main(args);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "test-server-" + port);
+        t.setDaemon(true);
+        t.start();
+        for (int tries = 0; ; tries++) { // until it's listening
+            try (Socket s = new Socket("127.0.0.1", port)) {
+                return port;
+            } catch (IOException e) {
+                if (tries == 100) throw e;
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    static void send(Socket s, String message) throws IOException {
+        s.getOutputStream().write((message + "\n\n").getBytes(StandardCharsets.UTF_8));
+        s.getOutputStream().flush();
+    }
+
+    // reads until `text` has come by (true) or `millis` passed without it (false); what was read is dropped
+    static boolean await(Socket s, String text, long millis) throws IOException {
+        long end = System.currentTimeMillis() + millis;
+        InputStream in = s.getInputStream();
+        StringBuilder seen = new StringBuilder();
+        byte[] buf = new byte[8192];
+        while (System.currentTimeMillis() < end) {
+            s.setSoTimeout((int) Math.max(1, end - System.currentTimeMillis()));
+            int n;
+            try {
+                n = in.read(buf);
+            } catch (SocketTimeoutException e) {
+                break;
+            }
+            if (n < 0) break;
+            seen.append(new String(buf, 0, n, StandardCharsets.ISO_8859_1));
+            if (seen.indexOf(text) >= 0) return true;
+        }
+        return false;
+    }
+
+    // a text client that reads whole messages (it buffers: don't use await on its socket)
+    static final class Client implements AutoCloseable {
+        final Socket socket;
+        private final BufferedReader in;
+
+        Client(int port) throws IOException {
+            socket = new Socket("127.0.0.1", port);
+            socket.setSoTimeout(5000); // a message that never comes fails the test instead of hanging it
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        void send(String message) throws IOException {
+            TestServer.send(socket, message);
+        }
+
+        // lines of the next TYPE:`type` message (TYPE line first, null: of any type); the ones before it are dropped
+        List<String> next(String type) throws IOException {
+            while (true) {
+                List<String> msg = new ArrayList<>();
+                String line;
+                while ((line = in.readLine()) != null && !line.isEmpty()) msg.add(line);
+                if (line == null) throw new EOFException("closed before TYPE:" + type);
+                if (!msg.isEmpty() && (type == null || msg.get(0).equals("TYPE:" + type))) return msg;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    // value of the first KEY: line, null if there's none
+    static String value(List<String> msg, String key) {
+        for (String line : msg) {
+            if (line.startsWith(key + ":")) return line.substring(key.length() + 1);
+        }
+        return null;
+    }
+}
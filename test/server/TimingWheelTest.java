@@ -0,0 +1,71 @@
+package server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+    private final TimingWheel wheel = new TimingWheel(10, 8, null); // 8 slots of 10 ms: one turn is 80 ms
+
+    @AfterEach
+    void stop() {
+        wheel.stop();
+    }
+
+    @Test
+    void runsOnTheExecutorNotBeforeItsDeadline() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        List<Thread> on = new CopyOnWriteArrayList<>();
+        long start = System.nanoTime();
+        TimingWheel.Timeout t = wheel.schedule(ran::countDown, 50, TimeUnit.MILLISECONDS, task -> {
+            on.add(Thread.currentThread());
+            task.run();
+        });
+        assertTrue(t.dueNanos() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50), "fired early");
+        assertEquals("timer-wheel", on.get(0).getName()); // handed over by the ticker, never run in schedule()
+        assertFalse(t.cancel()); // already fired
+    }
+
+    // longer than a turn of the wheel: it sits in its bucket until the right turn comes round
+    @Test
+    void delaysLongerThanOneTurnWaitForTheirTurn() throws Exception {
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        long start = System.nanoTime();
+        for (long ms : new long[] {250, 20, 100}) {
+            wheel.schedule(() -> {
+                fired.add(ms + " after " + (System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(ms)));
+                done.countDown();
+            }, ms, TimeUnit.MILLISECONDS, Runnable::run);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("20 after true", "100 after true", "250 after true"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1), kept = new CountDownLatch(1);
+        TimingWheel.Timeout t = wheel.schedule(cancelled::countDown, 30, TimeUnit.MILLISECONDS, Runnable::run);
+        wheel.schedule(kept::countDown, 110, TimeUnit.MILLISECONDS, Runnable::run); // same bucket, a turn later
+        assertTrue(t.cancel());
+        assertFalse(t.cancel()); // only once
+        assertTrue(kept.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.await(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void zeroDelayRunsOnTheNextTick() throws Exception {
+        CountDownLatch ran = new CountDownLatch(1);
+        wheel.schedule(ran::countDown, 0, TimeUnit.MILLISECONDS, Runnable::run);
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+    }
+}